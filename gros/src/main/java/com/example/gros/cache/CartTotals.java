@@ -0,0 +1,248 @@
+package com.example.gros.cache;
+
+import com.example.gros.dto.CartItemResponse;
+import com.example.gros.event.ProductChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Running cart header per customer: item count and total as long cents, adjusted by every
+// CartService edit so reading it is one map lookup that never touches the cart lines. A cart is
+// loaded from its lines on its first header read. A price change or discontinued product drops
+// the carts holding it, found through a productId -> customerIds index; they reload on their next read.
+@Component
+public class CartTotals {
+    private static final int STRIPES = 64;
+
+    public record Header(int itemCount, long totalCents) {
+        public BigDecimal total() {
+            return BigDecimal.valueOf(totalCents, 2);
+        }
+    }
+
+    // Changed only under its customer's lock, which also covers the customer's byProduct entries
+    private final class Cart {
+        final Integer customerId;
+        // productId -> {quantity, unit price in cents}; only read when applying edits
+        final Map<Integer, long[]> lines = new ConcurrentHashMap<>();
+        // running sums, changed under the customer's lock and published through header
+        long itemCount;
+        long totalCents;
+        volatile Header header = new Header(0, 0);
+
+        Cart(Integer customerId) {
+            this.customerId = customerId;
+        }
+
+        void set(Integer productId, int quantity, BigDecimal unitPrice) {
+            long[] previous = lines.remove(productId);
+            if (previous != null) {
+                itemCount -= previous[0];
+                totalCents -= previous[0] * previous[1];
+            }
+            if (quantity > 0 && unitPrice != null) {
+                long cents = cents(unitPrice);
+                lines.put(productId, new long[] {quantity, cents});
+                itemCount += quantity;
+                totalCents += quantity * cents;
+                if (previous == null) {
+                    byProduct.computeIfAbsent(productId, id -> ConcurrentHashMap.newKeySet()).add(customerId);
+                }
+            } else if (previous != null) {
+                unindex(productId);
+            }
+        }
+
+        // Called once the cart is no longer cached
+        void unindexAll() {
+            lines.keySet().forEach(this::unindex);
+        }
+
+        private void unindex(Integer productId) {
+            byProduct.computeIfPresent(productId, (id, customers) -> {
+                customers.remove(customerId);
+                return customers.isEmpty() ? null : customers;
+            });
+        }
+
+        void publish() {
+            header = new Header(Math.toIntExact(itemCount), totalCents);
+        }
+    }
+
+    private final Map<Integer, Cart> carts = new ConcurrentHashMap<>();
+    // productId -> customers whose cached (or loading) cart has a line for it
+    private final Map<Integer, Set<Integer>> byProduct = new ConcurrentHashMap<>();
+    // serialize writes to the same cart so the cached header applies them in commit order
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+    private final int maxCarts;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    // bumped on every price or availability change so a load or edit that raced with one is not kept
+    private final AtomicLong generation = new AtomicLong();
+
+    public CartTotals(@Value("${gros.cart.totals.max-carts:100000}") int maxCarts) {
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        this.maxCarts = Math.max(1, maxCarts);
+    }
+
+    // loader supplies the cart's active lines when the customer is not cached yet
+    public Header header(Integer customerId, Supplier<List<CartItemResponse>> loader) {
+        Cart cart = carts.get(customerId);
+        if (cart != null) {
+            hits.increment();
+            return cart.header;
+        }
+        ReentrantLock lock = lock(customerId);
+        lock.lock();
+        try {
+            cart = carts.get(customerId);
+            if (cart != null) {
+                hits.increment();
+                return cart.header;
+            }
+            misses.increment();
+            long startGeneration = generation.get();
+            Cart loaded = new Cart(customerId);
+            for (CartItemResponse item : loader.get()) {
+                loaded.set(item.getProductId(), item.getQuantity(), item.getUnitPrice());
+            }
+            loaded.publish();
+            if (generation.get() == startGeneration) {
+                if (carts.size() >= maxCarts) {
+                    evictOne();
+                }
+                carts.put(customerId, loaded);
+            } else {
+                loaded.unindexAll();
+            }
+            return loaded.header;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Runs a cart write under the customer's lock, then applies the lines it changed
+    // (productId -> new quantity, 0 once removed) to the cached header, if there is one.
+    // prices gives a product's current price, or null when it is no longer sold.
+    public void update(Integer customerId, Supplier<Map<Integer, Integer>> write, Function<Integer, BigDecimal> prices) {
+        ReentrantLock lock = lock(customerId);
+        lock.lock();
+        try {
+            long startGeneration = generation.get();
+            Map<Integer, Integer> changed = write.get();
+            Cart cart = carts.get(customerId);
+            if (cart == null) {
+                return;
+            }
+            for (Map.Entry<Integer, Integer> line : changed.entrySet()) {
+                int quantity = line.getValue();
+                cart.set(line.getKey(), quantity, quantity > 0 ? prices.apply(line.getKey()) : null);
+            }
+            cart.publish();
+            if (generation.get() != startGeneration) {
+                drop(customerId);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Forgets a cart; its next read reloads it
+    public void invalidate(Integer customerId) {
+        ReentrantLock lock = lock(customerId);
+        lock.lock();
+        try {
+            drop(customerId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Runs after ProductCache has dropped the product, so edits that follow price lines afresh
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        // a new product is in no cart yet, and stock does not change totals
+        if (event.getType() == ProductChangedEvent.Type.CREATED || event.getType() == ProductChangedEvent.Type.STOCK_CHANGED) {
+            return;
+        }
+        generation.incrementAndGet();
+        Set<Integer> customers = byProduct.get(event.getProductId());
+        if (customers == null) {
+            return;
+        }
+        for (Integer customerId : List.copyOf(customers)) {
+            ReentrantLock lock = lock(customerId);
+            lock.lock();
+            try {
+                Cart cart = carts.get(customerId);
+                if (cart != null && cart.lines.containsKey(event.getProductId())) {
+                    drop(customerId);
+                    invalidations.increment();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    public Map<String, Object> stats() {
+        return Map.of(
+            "carts", carts.size(),
+            "maxCarts", maxCarts,
+            "hits", hits.sum(),
+            "misses", misses.sum(),
+            "invalidations", invalidations.sum()
+        );
+    }
+
+    private static long cents(BigDecimal price) {
+        return price.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    // Caller holds the customer's lock
+    private void drop(Integer customerId) {
+        Cart cart = carts.remove(customerId);
+        if (cart != null) {
+            cart.unindexAll();
+        }
+    }
+
+    // Drops an arbitrary cart to make room; it reloads on its next read. The caller already holds
+    // one stripe's lock, so carts whose stripe is busy are skipped rather than waited for.
+    private void evictOne() {
+        for (Integer customerId : carts.keySet()) {
+            ReentrantLock lock = lock(customerId);
+            if (lock.tryLock()) {
+                try {
+                    drop(customerId);
+                    return;
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    private ReentrantLock lock(Integer customerId) {
+        return locks[Math.floorMod(customerId.hashCode(), STRIPES)];
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.gros.cache;
+
+import com.example.gros.event.ProductChangedEvent;
+import com.example.gros.repository.ProductRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
+
+// The full product list serialized once as JSON (plain and gzip), rebuilt in the
+// background after product changes so GET /api/products can write the bytes directly.
+// Catalog edits rebuild it at once and it is not served until it has caught up with them.
+// Stock changes, one per product on every order, are batched into one rebuild per
+// gros.catalog.snapshot.stock-delay-ms; until then the previous snapshot is served under
+// its own version's ETag, so its quantities are at most that far behind.
+@Component
+public class CatalogSnapshot {
+    private static final Logger logger = LoggerFactory.getLogger(CatalogSnapshot.class);
+
+    public static final class Snapshot {
+        private final long version;
+        private final String etag;
+        private final String gzipEtag;
+        private final byte[] json;
+        private final byte[] gzip;
+
+        Snapshot(long version, String etag, byte[] json, byte[] gzip) {
+            this.version = version;
+            this.etag = etag;
+            // the gzip body is a different representation, so it gets its own strong tag
+            this.gzipEtag = etag.substring(0, etag.length() - 1) + "-gz\"";
+            this.json = json;
+            this.gzip = gzip;
+        }
+
+        public long getVersion() { return version; }
+        public String getEtag() { return etag; }
+        public String getGzipEtag() { return gzipEtag; }
+        public byte[] getJson() { return json; }
+        public byte[] getGzip() { return gzip; }
+    }
+
+    private final ProductRepository productRepository;
+    private final CatalogVersion catalogVersion;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTx;
+    private final ScheduledExecutorService rebuilder = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "catalog-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean rebuildQueued = new AtomicBoolean();
+    private final AtomicBoolean stockRebuildQueued = new AtomicBoolean();
+    private final long stockDelayMillis;
+    // catalog version of the last change other than stock; older snapshots are not served
+    private volatile long requiredVersion;
+    private volatile Snapshot snapshot;
+
+    public CatalogSnapshot(ProductRepository productRepository, CatalogVersion catalogVersion,
+                           ObjectMapper objectMapper, PlatformTransactionManager transactionManager,
+                           @Value("${gros.catalog.snapshot.stock-delay-ms:1000}") long stockDelayMillis) {
+        this.productRepository = productRepository;
+        this.catalogVersion = catalogVersion;
+        this.objectMapper = objectMapper;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.stockDelayMillis = stockDelayMillis;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        scheduleRebuild();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.getType() == ProductChangedEvent.Type.STOCK_CHANGED) {
+            scheduleStockRebuild();
+            return;
+        }
+        requiredVersion = catalogVersion.current();
+        scheduleRebuild();
+    }
+
+    // Returns the latest snapshot unless a catalog edit has not reached it yet, otherwise null.
+    // It may be behind on stock; its ETag is that of the version it was built from.
+    public Snapshot current() {
+        Snapshot s = snapshot;
+        return s != null && s.version >= requiredVersion ? s : null;
+    }
+
+    private void scheduleRebuild() {
+        // a burst of writes collapses into one queued rebuild
+        if (rebuildQueued.compareAndSet(false, true)) {
+            rebuilder.execute(() -> {
+                rebuildQueued.set(false);
+                rebuild();
+            });
+        }
+    }
+
+    private void scheduleStockRebuild() {
+        if (stockRebuildQueued.compareAndSet(false, true)) {
+            rebuilder.schedule(() -> {
+                stockRebuildQueued.set(false);
+                rebuild();
+            }, stockDelayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void rebuild() {
+        try {
+            long version;
+            do {
+                version = catalogVersion.current();
+                String etag = catalogVersion.etag(version);
+                byte[] json = readOnlyTx.execute(status -> serialize());
+                snapshot = new Snapshot(version, etag, json, gzip(json));
+                // stock changes made meanwhile wait for their own delayed rebuild
+            } while (version < requiredVersion && !rebuildQueued.get());
+        } catch (RuntimeException e) {
+            logger.error("Failed to rebuild catalog snapshot", e);
+        }
+    }
+
+    private byte[] serialize() {
+        try {
+            return objectMapper.writeValueAsBytes(productRepository.findByDiscontinuedFalse());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuilder.shutdownNow();
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.gros.cache;
+
+import com.example.gros.event.ProductChangedEvent;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Monotonic version of the product catalog, bumped after every committed product change
+// (including stock decrements). Used to build ETags for the product endpoints.
+@Component
+public class CatalogVersion {
+    // distinguishes runs so a version number from before a restart never matches
+    private final String epoch = Long.toHexString(System.currentTimeMillis());
+    private final AtomicLong version = new AtomicLong();
+
+    // runs before other listeners so anything they rebuild sees the new version
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        version.incrementAndGet();
+    }
+
+    public long current() {
+        return version.get();
+    }
+
+    public String etag() {
+        return etag(version.get());
+    }
+
+    public String etag(long version) {
+        return "\"" + epoch + "-" + version + "\"";
+    }
+}
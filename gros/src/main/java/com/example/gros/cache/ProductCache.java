@@ -0,0 +1,140 @@
+package com.example.gros.cache;
+
+import com.example.gros.event.ProductChangedEvent;
+import com.example.gros.model.Product;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+// Read-through LRU cache of products by id. Entries are dropped after any committed
+// change to the product (update, delete, stock decrement from an order).
+@Component
+public class ProductCache {
+    private final int maxSize;
+    private final Map<Integer, Product> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    // bumped on every invalidation so a load that raced with a write is not cached
+    private final AtomicLong generation = new AtomicLong();
+
+    // A miss on id, seen at a cache generation. Loads are shared (SingleFlight) per Load, never
+    // across generations: a miss after an invalidation must not take a row read before the write.
+    public record Load(Integer id, long generation) {}
+
+    public ProductCache(@Value("${gros.cache.product.max-size:10000}") int maxSize) {
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Product> eldest) {
+                if (size() > ProductCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public Optional<Product> get(Integer id, Function<Load, Optional<Product>> loader) {
+        Product cached;
+        synchronized (entries) {
+            cached = entries.get(id);
+        }
+        if (cached != null) {
+            hits.increment();
+            return Optional.of(cached);
+        }
+        misses.increment();
+        long startGeneration = generation.get();
+        Optional<Product> loaded = loader.apply(new Load(id, startGeneration));
+        loaded.ifPresent(product -> {
+            synchronized (entries) {
+                if (generation.get() == startGeneration) {
+                    entries.put(id, product);
+                }
+            }
+        });
+        return loaded;
+    }
+
+    // Resolves many ids at once: hits come from the cache, all misses from one loader call.
+    // Ids the loader does not return are simply absent from the result.
+    public Map<Integer, Product> getAll(Collection<Integer> ids, Function<Collection<Integer>, List<Product>> loader) {
+        Map<Integer, Product> found = new HashMap<>();
+        List<Integer> missing = new ArrayList<>();
+        synchronized (entries) {
+            for (Integer id : ids) {
+                Product cached = entries.get(id);
+                if (cached != null) {
+                    found.put(id, cached);
+                } else {
+                    missing.add(id);
+                }
+            }
+        }
+        hits.add(found.size());
+        misses.add(missing.size());
+        if (missing.isEmpty()) {
+            return found;
+        }
+        long startGeneration = generation.get();
+        List<Product> loaded = loader.apply(missing);
+        synchronized (entries) {
+            boolean current = generation.get() == startGeneration;
+            for (Product product : loaded) {
+                found.put(product.getProductId(), product);
+                if (current) {
+                    entries.put(product.getProductId(), product);
+                }
+            }
+        }
+        return found;
+    }
+
+    public void invalidate(Integer id) {
+        synchronized (entries) {
+            generation.incrementAndGet();
+            entries.remove(id);
+        }
+        invalidations.increment();
+    }
+
+    // Ahead of the views that price or load products through this cache (CartTotals)
+    @Order(Ordered.HIGHEST_PRECEDENCE + 2)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.getType() != ProductChangedEvent.Type.CREATED) {
+            invalidate(event.getProductId());
+        }
+    }
+
+    public Map<String, Object> stats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        return Map.of(
+            "size", size,
+            "maxSize", maxSize,
+            "hits", hits.sum(),
+            "misses", misses.sum(),
+            "evictions", evictions.sum(),
+            "invalidations", invalidations.sum()
+        );
+    }
+}
@@ -0,0 +1,232 @@
+package com.example.gros.cache;
+
+import com.example.gros.event.ProductChangedEvent;
+import com.example.gros.model.Product;
+import com.example.gros.search.TextAnalyzer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// TTL- and size-bounded LRU cache of search results, keyed by the canonical query (its distinct
+// complete words in sorted order, then the word still being typed), plus the fuzzy flag and limit,
+// so "Milk ", "milk." and "MILK " share one entry. A product change only drops the entries it can
+// affect: those listing the product, and those whose every term the product's new text now matches.
+// Fuzzy entries are dropped on any text change. Stock changes swap the fresh entity into cached
+// lists in place. A productId -> keys index finds the entries listing a product, so stock changes
+// and deletes never scan the whole cache. Unaffected entries keep their ranking until the TTL even
+// though BM25 idf drifts as the catalog changes.
+@Component
+public class SearchResultCache {
+    private static final int TOP_QUERIES = 20;
+
+    private record Key(String query, boolean fuzzy, int limit) {}
+
+    private static final class Entry {
+        // query word -> its analyzed term
+        final Map<String, String> terms;
+        final long loadedAt;
+        final LongAdder hits = new LongAdder();
+        List<Product> results;
+
+        Entry(Map<String, String> terms, List<Product> results, long loadedAt) {
+            this.terms = terms;
+            this.results = results;
+            this.loadedAt = loadedAt;
+        }
+
+    }
+
+    private final TextAnalyzer analyzer;
+    private final int maxSize;
+    private final long ttlMillis;
+    private final Map<Key, Entry> entries;
+    // productId -> the entries listing it, by key; guarded by the entries monitor. Holds the entries
+    // themselves so patching them does not count as an access in the LRU order.
+    private final Map<Integer, Map<Key, Entry>> byProduct = new HashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    // bumped on every product change so a load that raced with a write is not cached
+    private final AtomicLong generation = new AtomicLong();
+
+    public SearchResultCache(TextAnalyzer analyzer,
+                             @Value("${gros.cache.search.max-size:1000}") int maxSize,
+                             @Value("${gros.cache.search.ttl-ms:60000}") long ttlMillis) {
+        this.analyzer = analyzer;
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > SearchResultCache.this.maxSize) {
+                    unindex(eldest.getKey(), eldest.getValue());
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public List<Product> get(String query, boolean fuzzy, int limit, Supplier<List<Product>> loader) {
+        TextAnalyzer.Query parsed = analyzer.parseQuery(query);
+        Map<String, String> terms = new HashMap<>();
+        for (String token : parsed.tokens()) {
+            terms.put(token, analyzer.term(token));
+        }
+        Key key = new Key(parsed.key(), fuzzy, limit);
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && now - entry.loadedAt <= ttlMillis) {
+                entry.hits.increment();
+                hits.increment();
+                return entry.results;
+            }
+            if (entry != null) {
+                remove(key);
+                expirations.increment();
+            }
+        }
+        misses.increment();
+        long startGeneration = generation.get();
+        List<Product> results = List.copyOf(loader.get());
+        synchronized (entries) {
+            if (generation.get() == startGeneration && maxSize > 0) {
+                Entry entry = new Entry(terms, results, now);
+                remove(key);
+                entries.put(key, entry);
+                index(key, entry);
+            }
+        }
+        return results;
+    }
+
+    // Runs after the search index has applied the same change, so reloads see the new state
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        Integer productId = event.getProductId();
+        Product product = event.getProduct();
+        Set<String> productTokens = new HashSet<>();
+        Set<String> productTerms = new HashSet<>();
+        if (event.getType() == ProductChangedEvent.Type.CREATED || event.getType() == ProductChangedEvent.Type.UPDATED) {
+            productTokens.addAll(analyzer.tokenize(product.getProductName()));
+            productTokens.addAll(analyzer.tokenize(product.getProductDescription()));
+            for (String token : productTokens) {
+                productTerms.add(analyzer.term(token));
+            }
+        }
+        synchronized (entries) {
+            generation.incrementAndGet();
+            Map<Key, Entry> listing = byProduct.getOrDefault(productId, Map.of());
+            if (event.getType() == ProductChangedEvent.Type.STOCK_CHANGED) {
+                for (Entry entry : listing.values()) {
+                    entry.results = entry.results.stream()
+                            .map(p -> p.getProductId().equals(productId) ? product : p)
+                            .toList();
+                }
+                return;
+            }
+            for (Key key : List.copyOf(listing.keySet())) {
+                remove(key);
+                invalidations.increment();
+            }
+            if (productTerms.isEmpty()) {
+                return;
+            }
+            // new text can match queries that did not list the product yet
+            Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<Key, Entry> cached = it.next();
+                if (cached.getKey().fuzzy() || matchesAll(cached.getValue().terms, productTokens, productTerms)) {
+                    it.remove();
+                    unindex(cached.getKey(), cached.getValue());
+                    invalidations.increment();
+                }
+            }
+        }
+    }
+
+    // The three helpers below run under the entries monitor
+    private void remove(Key key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            unindex(key, entry);
+        }
+    }
+
+    private void index(Key key, Entry entry) {
+        for (Product product : entry.results) {
+            byProduct.computeIfAbsent(product.getProductId(), id -> new HashMap<>()).put(key, entry);
+        }
+    }
+
+    private void unindex(Key key, Entry entry) {
+        for (Product product : entry.results) {
+            byProduct.computeIfPresent(product.getProductId(), (id, keys) -> {
+                keys.remove(key);
+                return keys.isEmpty() ? null : keys;
+            });
+        }
+    }
+
+    // Mirrors the index's AND semantics, erring towards a match: each query word must prefix a
+    // product word or share its analyzed term
+    private static boolean matchesAll(Map<String, String> queryTerms, Set<String> productTokens, Set<String> productTerms) {
+        for (Map.Entry<String, String> queryTerm : queryTerms.entrySet()) {
+            if (!productTerms.contains(queryTerm.getValue())
+                    && productTokens.stream().noneMatch(token -> token.startsWith(queryTerm.getKey()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public Map<String, Object> stats() {
+        int size;
+        List<Map<String, Object>> top = new ArrayList<>();
+        synchronized (entries) {
+            size = entries.size();
+            long now = System.currentTimeMillis();
+            entries.entrySet().stream()
+                    .sorted(Comparator.comparingLong((Map.Entry<Key, Entry> e) -> e.getValue().hits.sum()).reversed())
+                    .limit(TOP_QUERIES)
+                    .forEach(e -> top.add(Map.of(
+                        "query", e.getKey().query(),
+                        "fuzzy", e.getKey().fuzzy(),
+                        "limit", e.getKey().limit(),
+                        "hits", e.getValue().hits.sum(),
+                        "ageMs", now - e.getValue().loadedAt
+                    )));
+        }
+        return Map.of(
+            "size", size,
+            "maxSize", maxSize,
+            "ttlMs", ttlMillis,
+            "hits", hits.sum(),
+            "misses", misses.sum(),
+            "evictions", evictions.sum(),
+            "expirations", expirations.sum(),
+            "invalidations", invalidations.sum(),
+            "topQueries", top
+        );
+    }
+}
@@ -22,7 +22,10 @@ public class AdminOrderController {
     }
 
     @GetMapping
-    public ResponseEntity<?> getAllOrders() {
+    public ResponseEntity<?> getAllOrders(@RequestParam(required = false) String fields) {
+        if (fields != null) {
+            return ResponseEntity.ok(orderService.getAllOrders(orderService.orderFields(fields)));
+        }
         try {
             List<Order> orders = orderService.getAllOrders();
 
@@ -0,0 +1,61 @@
+package com.example.gros.controller;
+
+import com.example.gros.cache.CartTotals;
+import com.example.gros.cache.ProductCache;
+import com.example.gros.cache.SearchResultCache;
+import com.example.gros.reservation.StockReservations;
+import com.example.gros.search.SearchQueryStats;
+import com.example.gros.service.ProductCompactionJob;
+import com.example.gros.service.ProductService;
+import com.example.gros.service.WriteBehindCartStore;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/stats")
+@CrossOrigin(origins = "http://localhost:4200")
+public class AdminStatsController {
+    private final ProductCache productCache;
+    private final ProductService productService;
+    private final ProductCompactionJob productCompactionJob;
+    private final SearchResultCache searchResultCache;
+    private final SearchQueryStats searchQueryStats;
+    private final WriteBehindCartStore cartStore;
+    private final CartTotals cartTotals;
+    private final StockReservations stockReservations;
+
+    public AdminStatsController(ProductCache productCache, ProductService productService, ProductCompactionJob productCompactionJob,
+                                SearchResultCache searchResultCache, SearchQueryStats searchQueryStats,
+                                ObjectProvider<WriteBehindCartStore> cartStore, CartTotals cartTotals,
+                                StockReservations stockReservations) {
+        this.cartStore = cartStore.getIfAvailable();
+        this.cartTotals = cartTotals;
+        this.stockReservations = stockReservations;
+        this.productCache = productCache;
+        this.searchResultCache = searchResultCache;
+        this.searchQueryStats = searchQueryStats;
+        this.productService = productService;
+        this.productCompactionJob = productCompactionJob;
+    }
+
+    @GetMapping
+    public ResponseEntity<?> getStats() {
+        return ResponseEntity.ok(Map.of(
+            "productCache", productCache.stats(),
+            "productLoads", productService.productLoadStats(),
+            "productCompaction", productCompactionJob.stats(),
+            "searchCache", searchResultCache.stats(),
+            "cartStore", cartStore == null ? Map.of("mode", "direct") : cartStore.stats(),
+            "cartTotals", cartTotals.stats(),
+            "stockReservations", stockReservations.stats()
+        ));
+    }
+
+    // Most frequent searches and most frequent searches with no results (approximate counts)
+    @GetMapping("/search-queries")
+    public ResponseEntity<?> getSearchQueries(@RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(searchQueryStats.stats(Math.max(1, limit)));
+    }
+}
@@ -1,62 +1,61 @@
 package com.example.gros.controller;
 
+import com.example.gros.cache.CartTotals;
+import com.example.gros.dto.CartBatchRequest;
 import com.example.gros.dto.CartItemRequest;
-import com.example.gros.dto.CartItemResponse;
-import com.example.gros.model.CartItem;
-import com.example.gros.model.Product;
-import com.example.gros.model.User;
+import com.example.gros.dto.CartView;
 import com.example.gros.service.CartService;
-import com.example.gros.service.UserService;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import jakarta.validation.Valid;
 
-import java.math.BigDecimal;
-import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/cart")
 @CrossOrigin(origins = "http://localhost:4200")
 public class CartController {
     private final CartService cartService;
-    private final UserService userService;
 
-    public CartController(CartService cartService, UserService userService) {
+    public CartController(CartService cartService) {
         this.cartService = cartService;
-        this.userService = userService;
     }
 
     // Get cart by customerId (as query param)
     @GetMapping
     public ResponseEntity<?> getCart(@RequestParam Integer customerId) {
         try {
-            User user = userService.findById(customerId)
-                    .orElseThrow(() -> new IllegalArgumentException("User with customerId " + customerId + " not found"));
-            
-            List<CartItem> cartItems = cartService.getCartItems(user);
-
-            List<CartItemResponse> response = cartItems.stream()
-                .map((CartItem item) -> {
-                    Product product = item.getProduct();
-                    return new CartItemResponse(
-                        product.getProductId(),
-                        product.getProductName(),
-                        item.getQuantity(),
-                        product.getPrice(),
-                        product.getImageUrl()
-                    );
-                })
-                .collect(Collectors.toList());
-            BigDecimal cartTotal = response.stream()
-                    .map(CartItemResponse::getTotalPrice)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+            CartView cart = cartService.getCartView(customerId);
+            return ResponseEntity.ok(Map.of(
+                    "items", cart.getItems(),
+                    "cartTotal", cart.getCartTotal()
+                ));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity
+                    .status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of(
+                        "success", false,
+                        "message", e.getMessage()
+                    ));
+        } catch (Exception e) {
+            return ResponseEntity
+                    .status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of(
+                        "success", false,
+                        "message", "An error occurred: " + e.getMessage()
+                    ));
+        }
+    }
 
+    // Cart badge: item count and total only, served from running totals without reading the lines
+    @GetMapping("/summary")
+    public ResponseEntity<?> getCartSummary(@RequestParam Integer customerId) {
+        try {
+            CartTotals.Header header = cartService.getCartHeader(customerId);
             return ResponseEntity.ok(Map.of(
-                    "items", response,
-                    "cartTotal", cartTotal
+                    "itemCount", header.itemCount(),
+                    "cartTotal", header.total()
                 ));
         } catch (IllegalArgumentException e) {
             return ResponseEntity
@@ -81,12 +80,7 @@ public class CartController {
         try {
             System.out.println("CartController: Received add to cart request - customerId: " + req.getCustomerId() + ", productId: " + req.getProductId() + ", quantity: " + req.getQuantity());
             
-            User user = userService.findById(req.getCustomerId())
-                    .orElseThrow(() -> new IllegalArgumentException("User with customerId " + req.getCustomerId() + " not found"));
-            
-            System.out.println("CartController: User found - " + user.getCustomerName());
-            
-            cartService.addToCart(user, req);
+            cartService.addToCart(req.getCustomerId(), req);
 
             System.out.println("CartController: Item added to cart successfully");
             return ResponseEntity
@@ -115,12 +109,36 @@ public class CartController {
         }
     }
 
+    // Several add/update/remove operations for one customer, applied together or not at all
+    @PostMapping("/batch")
+    public ResponseEntity<?> applyBatch(@RequestBody @Valid CartBatchRequest req) {
+        try {
+            int applied = cartService.applyBatch(req.getCustomerId(), req.getOperations());
+            return ResponseEntity.ok(Map.of(
+                "success", true,
+                "message", "Cart updated successfully",
+                "operationsApplied", applied
+            ));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity
+                    .status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of(
+                        "success", false,
+                        "message", e.getMessage()
+                    ));
+        } catch (Exception e) {
+            return ResponseEntity
+                    .status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of(
+                        "success", false,
+                        "message", "An error occurred: " + e.getMessage()
+                    ));
+        }
+    }
+
     @PutMapping
     public ResponseEntity<?> updateItem(@RequestParam Integer customerId, @RequestBody Map<String, Object> requestBody) {
         try {
-            User user = userService.findById(customerId)
-                    .orElseThrow(() -> new IllegalArgumentException("User with customerId " + customerId + " not found"));
-            
             // Extract productId and quantity from request body
             Integer productId = (Integer) requestBody.get("productId");
             Integer quantity = (Integer) requestBody.get("quantity");
@@ -140,7 +158,7 @@ public class CartController {
             req.setProductId(productId);
             req.setQuantity(quantity);
             
-            cartService.updateCartItem(user, req);
+            cartService.updateCartItem(customerId, req);
 
             return ResponseEntity.ok(Map.of(
                 "success", true,
@@ -166,10 +184,7 @@ public class CartController {
     @DeleteMapping("/{productId}")
     public ResponseEntity<?> removeItem(@RequestParam Integer customerId, @PathVariable Integer productId) {
         try {
-            User user = userService.findById(customerId)
-                    .orElseThrow(() -> new IllegalArgumentException("User with customerId " + customerId + " not found"));
-            
-            cartService.removeCartItem(user, productId);
+            cartService.removeCartItem(customerId, productId);
 
             return ResponseEntity.ok(Map.of(
                 "success", true,
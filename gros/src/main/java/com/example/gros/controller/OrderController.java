@@ -33,6 +33,7 @@ public class OrderController {
             user.setCustomerName("Sample User");
             user.setEmail(email != null ? email : "sample@example.com");
             
+            orderService.prepareCheckout(user.getCustomerId());
             Order savedOrder = orderService.placeOrder(user);
 
             return ResponseEntity
@@ -50,6 +51,9 @@ public class OrderController {
 
     @PostMapping("/place-order")
     public ResponseEntity<?> placeOrderWithCustomerId(@RequestParam Integer customerId, @RequestBody Map<String, Object> paymentDetails) {
+        // Flush pending cart edits before the user lookup takes a connection
+        orderService.prepareCheckout(customerId);
+
         // Find user by customerId
         User user = userService.findById(customerId)
                 .orElseThrow(() -> new IllegalArgumentException("User with customerId " + customerId + " not found"));
@@ -68,7 +72,11 @@ public class OrderController {
     }
 
     @GetMapping
-    public ResponseEntity<?> getOrders(@RequestParam(required = false) String email) {
+    public ResponseEntity<?> getOrders(@RequestParam(required = false) String email,
+                                       @RequestParam(required = false) String fields) {
+        if (fields != null) {
+            return ResponseEntity.ok(orderService.getAllOrders(orderService.orderFields(fields)));
+        }
         try {
             // For now, return sample orders or handle the case when no user is provided
             // You can modify this based on your requirements
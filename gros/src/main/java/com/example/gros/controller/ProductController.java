@@ -1,11 +1,29 @@
 package com.example.gros.controller;
 
+import com.example.gros.cache.CatalogSnapshot;
+import com.example.gros.cache.CatalogVersion;
+import com.example.gros.dto.FieldSelection;
+import com.example.gros.dto.ProductDeletionResult;
+import com.example.gros.dto.ProductImportResult;
+import com.example.gros.dto.ProductSuggestion;
 import com.example.gros.model.Product;
+import com.example.gros.search.SearchQueryStats;
+import com.example.gros.service.ProductExportService;
+import com.example.gros.service.ProductImportService;
 import com.example.gros.service.ProductService;
 import jakarta.validation.Valid;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -15,45 +33,209 @@ import java.util.Optional;
 @CrossOrigin(origins = "http://localhost:4200")
 public class ProductController {
     private final ProductService productService;
+    private final CatalogVersion catalogVersion;
+    private final CatalogSnapshot catalogSnapshot;
+    private final ProductImportService productImportService;
+    private final ProductExportService productExportService;
+    private final SearchQueryStats searchQueryStats;
 
-    public ProductController(ProductService productService) {
+    public ProductController(ProductService productService, CatalogVersion catalogVersion, CatalogSnapshot catalogSnapshot,
+                             ProductImportService productImportService, ProductExportService productExportService,
+                             SearchQueryStats searchQueryStats) {
         this.productService = productService;
+        this.productImportService = productImportService;
+        this.productExportService = productExportService;
+        this.catalogVersion = catalogVersion;
+        this.catalogSnapshot = catalogSnapshot;
+        this.searchQueryStats = searchQueryStats;
     }
 
     // 1. Specific paths first - search endpoint
     @GetMapping("/search")
-    public ResponseEntity<List<Product>> searchProducts(@RequestParam("q") String query) {
+    public ResponseEntity<List<Product>> searchProducts(@RequestParam("q") String query,
+                                                        @RequestParam(defaultValue = "false") boolean fuzzy,
+                                                        @RequestParam(required = false) Integer limit,
+                                                        WebRequest request) {
+        // counted before the conditional check so searches answered with 304 still show up
+        searchQueryStats.record(query);
+        // read the version before the data so a concurrent change can only make the tag older
+        String etag = catalogVersion.etag();
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
         try {
-            List<Product> results = productService.searchProducts(query);
-            return ResponseEntity.ok(results);
+            List<Product> results = productService.searchProducts(query, fuzzy, limit);
+            if (results.isEmpty()) {
+                searchQueryStats.recordZeroResults(query);
+            }
+            return cacheable(etag).body(results);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body(List.of()); // Return empty list on error
         }
     }
 
+    @GetMapping("/suggest")
+    public ResponseEntity<List<ProductSuggestion>> suggestProducts(@RequestParam("prefix") String prefix,
+                                                                   @RequestParam(defaultValue = "10") int limit,
+                                                                   WebRequest request) {
+        String etag = catalogVersion.etag();
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return cacheable(etag).body(productService.suggestProducts(prefix, limit));
+    }
+
+    // Batch lookup: GET /api/products/batch?ids=3,1,2 returns the products in that order
+    @GetMapping("/batch")
+    public ResponseEntity<List<?>> getProductsByIds(@RequestParam("ids") List<Integer> ids,
+                                                    @RequestParam(required = false) String fields,
+                                                    WebRequest request) {
+        String etag = catalogVersion.etag();
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        if (fields != null) {
+            return cacheable(etag).body(productService.getProductsByIds(ids, productService.productFields(fields)));
+        }
+        return cacheable(etag).body(productService.getProductsByIds(ids));
+    }
+
     // 2. General products endpoint
     @GetMapping
     public ResponseEntity<?> getProducts(@RequestParam(required = false) Integer id,
-                                         @RequestParam(required = false) String name) {
+                                         @RequestParam(required = false) String name,
+                                         @RequestParam(required = false) Integer after,
+                                         @RequestParam(required = false) Integer limit,
+                                         @RequestParam(required = false) String sort,
+                                         @RequestParam(required = false) BigDecimal minPrice,
+                                         @RequestParam(required = false) BigDecimal maxPrice,
+                                         @RequestParam(required = false) Boolean inStock,
+                                         @RequestParam(required = false) String fields,
+                                         WebRequest request) {
+        if (fields == null && id == null && name == null && after == null && limit == null && sort == null
+                && minPrice == null && maxPrice == null && inStock == null) {
+            // the snapshot may trail on stock, so it is validated against its own version's tag
+            CatalogSnapshot.Snapshot snapshot = catalogSnapshot.current();
+            if (snapshot != null) {
+                boolean gzip = acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+                if (request.checkNotModified(snapshotEtag(snapshot, gzip, request))) {
+                    return null;
+                }
+                return snapshotResponse(snapshot, gzip);
+            }
+        }
+        String etag = catalogVersion.etag();
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        if (fields != null) {
+            return sparseProducts(productService.productFields(fields), id, name, after, limit, sort, minPrice, maxPrice, inStock, etag);
+        }
         if (id != null) {
             Optional<Product> product = productService.getProductById(id);
-            return product.<ResponseEntity<?>>map(ResponseEntity::ok)
+            return product.<ResponseEntity<?>>map(p -> cacheable(etag).body(p))
                     .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).body("Product not found"));
         } else if (name != null) {
             List<Product> products = productService.searchProductsByName(name);
-            return ResponseEntity.ok(products);
+            return cacheable(etag).body(products);
+        } else if (minPrice != null || maxPrice != null || inStock != null) {
+            List<Product> products = productService.filterProducts(minPrice, maxPrice, Boolean.TRUE.equals(inStock), sort, limit);
+            return cacheable(etag).body(products);
+        } else if (after != null || limit != null || sort != null) {
+            return cacheable(etag).body(productService.getProductPage(after, limit, sort));
         } else {
             List<Product> products = productService.getAllProducts();
-            return ResponseEntity.ok(products);
+            return cacheable(etag).body(products);
+        }
+    }
+
+    // Same branches as getProducts, but only the requested fields are read from the database
+    private ResponseEntity<?> sparseProducts(FieldSelection fields, Integer id, String name, Integer after, Integer limit, String sort,
+                                             BigDecimal minPrice, BigDecimal maxPrice, Boolean inStock, String etag) {
+        if (id != null) {
+            List<Map<String, Object>> product = productService.getProductsByIds(List.of(id), fields);
+            return product.isEmpty()
+                    ? ResponseEntity.status(HttpStatus.NOT_FOUND).body("Product not found")
+                    : cacheable(etag).body(product.get(0));
+        } else if (name != null) {
+            return cacheable(etag).body(productService.searchProductsByName(name, fields));
+        } else if (minPrice != null || maxPrice != null || inStock != null) {
+            return cacheable(etag).body(productService.filterProducts(minPrice, maxPrice, Boolean.TRUE.equals(inStock), sort, limit, fields));
+        } else if (after != null || limit != null || sort != null) {
+            return cacheable(etag).body(productService.getProductPage(after, limit, sort, fields));
         }
+        return cacheable(etag).body(productService.getAllProducts(fields));
+    }
+
+    // no-cache (instead of the default no-store) lets clients keep the body and revalidate with If-None-Match
+    private ResponseEntity.BodyBuilder cacheable(String etag) {
+        return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache());
+    }
+
+    // Writes the pre-serialized catalog, gzip-encoded when the client accepts it
+    private ResponseEntity<byte[]> snapshotResponse(CatalogSnapshot.Snapshot snapshot, boolean gzip) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .contentType(MediaType.APPLICATION_JSON)
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            return response.eTag(snapshot.getGzipEtag()).header(HttpHeaders.CONTENT_ENCODING, "gzip").body(snapshot.getGzip());
+        }
+        return response.eTag(snapshot.getEtag()).body(snapshot.getJson());
+    }
+
+    // Tag to validate If-None-Match against. Either encoding's tag is accepted: both bodies
+    // come from the same snapshot, so a client that switched encodings still gets its 304.
+    private static String snapshotEtag(CatalogSnapshot.Snapshot snapshot, boolean gzip, WebRequest request) {
+        String other = gzip ? snapshot.getEtag() : snapshot.getGzipEtag();
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null && ifNoneMatch.contains(other)) {
+            return other;
+        }
+        return gzip ? snapshot.getGzipEtag() : snapshot.getEtag();
+    }
+
+    // gzip is acceptable when listed, or covered by "*", with a non-zero q ("gzip;q=0" refuses it)
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzip = null;
+        Double any = null;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] params = coding.split(";");
+            String name = params[0].trim().toLowerCase();
+            double q = 1;
+            for (int i = 1; i < params.length; i++) {
+                String param = params[i].trim().toLowerCase();
+                if (param.startsWith("q=")) {
+                    try {
+                        q = Double.parseDouble(param.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            if (name.equals("gzip") || name.equals("x-gzip")) {
+                gzip = q;
+            } else if (name.equals("*")) {
+                any = q;
+            }
+        }
+        double q = gzip != null ? gzip : any != null ? any : 0;
+        return q > 0;
     }
     
     // 3. Numeric ID only - prevents "search" from matching
     @GetMapping("/{id:\\d+}")
-    public ResponseEntity<?> getProductByIdPath(@PathVariable Integer id) {
+    public ResponseEntity<?> getProductByIdPath(@PathVariable Integer id, WebRequest request) {
+        String etag = catalogVersion.etag();
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
         Optional<Product> product = productService.getProductById(id);
-        return product.<ResponseEntity<?>>map(ResponseEntity::ok)
+        return product.<ResponseEntity<?>>map(p -> cacheable(etag).body(p))
                 .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).body("Product not found"));
     }
 
@@ -63,6 +245,42 @@ public class ProductController {
         return ResponseEntity.status(HttpStatus.CREATED).body(created);
     }
 
+    // Streams the whole catalog as NDJSON (default) or CSV without loading it into memory
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportProducts(@RequestParam(defaultValue = "ndjson") String format) {
+        if (format.equalsIgnoreCase("csv")) {
+            return ResponseEntity.ok()
+                    .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"products.csv\"")
+                    .body(productExportService::exportCsv);
+        }
+        if (!format.equalsIgnoreCase("ndjson")) {
+            throw new IllegalArgumentException("Unsupported export format: " + format + " (use ndjson or csv)");
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"products.ndjson\"")
+                .body(productExportService::exportNdjson);
+    }
+
+    // Bulk import: text/csv (header row required) or application/x-ndjson, streamed row by row
+    @PostMapping("/import")
+    public ResponseEntity<?> importProducts(@RequestParam(required = false) String format,
+                                            @RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false) String contentType,
+                                            InputStream body) throws IOException {
+        String type = format != null ? format.toLowerCase() : contentType != null ? contentType.toLowerCase() : "";
+        ProductImportResult result;
+        if (type.contains("csv")) {
+            result = productImportService.importCsv(body);
+        } else if (type.contains("ndjson") || type.contains("jsonl") || type.contains("json-seq")) {
+            result = productImportService.importNdjson(body);
+        } else {
+            return ResponseEntity.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE)
+                .body(Map.of("success", false, "message", "Use text/csv or application/x-ndjson"));
+        }
+        return ResponseEntity.ok(result);
+    }
+
     @PutMapping("/{productId}")
     public ResponseEntity<?> updateProduct(@PathVariable Integer productId,
                                            @Valid @RequestBody Product product) {
@@ -73,8 +291,9 @@ public class ProductController {
     @DeleteMapping("/{productId}")
     public ResponseEntity<?> deleteProduct(@PathVariable Integer productId) {
         try {
-            productService.deleteProduct(productId);
-            return ResponseEntity.ok(Map.of("success", true, "message", "Product deleted successfully"));
+            ProductDeletionResult result = productService.deleteProduct(productId);
+            return ResponseEntity.ok(Map.of("success", true, "message", "Product deleted successfully",
+                "productsDeleted", result.getProductsDeleted()));
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                 .body(Map.of("success", false, "message", e.getMessage()));
@@ -86,4 +305,12 @@ public class ProductController {
                 .body(Map.of("success", false, "message", "An error occurred while deleting the product"));
         }
     }
-} 
\ No newline at end of file
+
+    // Admin bulk delete: DELETE /api/products?ids=1,2,3
+    @DeleteMapping
+    public ResponseEntity<?> deleteProducts(@RequestParam("ids") List<Integer> ids) {
+        ProductDeletionResult result = productService.deleteProducts(ids);
+        return ResponseEntity.ok(Map.of("success", true,
+            "productsDeleted", result.getProductsDeleted()));
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.gros.controller;
 
+import com.example.gros.dto.FieldSelection;
 import com.example.gros.dto.OrderResponse;
 import com.example.gros.dto.OrderItemResponse;
 import com.example.gros.model.Order;
@@ -22,7 +23,11 @@ public class UserOrderController {
     }
 
     @GetMapping
-    public ResponseEntity<?> getUserOrders(@RequestParam Integer customerId) {
+    public ResponseEntity<?> getUserOrders(@RequestParam Integer customerId,
+                                           @RequestParam(required = false) String fields) {
+        if (fields != null) {
+            return ResponseEntity.ok(orderService.getOrdersForUser(customerId, orderService.orderFields(fields)));
+        }
         try {
             List<Order> orders = orderService.getOrdersForUser(customerId);
 
@@ -53,8 +58,13 @@ public class UserOrderController {
     }
 
     @GetMapping("/{orderId}")
-    public ResponseEntity<?> getOrderById(@PathVariable Integer orderId) {
+    public ResponseEntity<?> getOrderById(@PathVariable Integer orderId,
+                                          @RequestParam(required = false) String fields) {
+        FieldSelection selection = fields == null ? null : orderService.orderFields(fields);
         try {
+            if (selection != null) {
+                return ResponseEntity.ok(orderService.getOrderById(orderId, selection));
+            }
             Order order = orderService.getOrderById(orderId);
 
             List<OrderItemResponse> itemResponses = order.getItems().stream().map(item ->
@@ -0,0 +1,22 @@
+package com.example.gros.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import java.util.List;
+
+public class CartBatchRequest {
+
+    @NotNull
+    private Integer customerId;
+
+    @NotEmpty
+    @Size(max = 200)
+    private List<@Valid @NotNull CartOperation> operations;
+
+    public Integer getCustomerId() { return customerId; }
+    public void setCustomerId(Integer customerId) { this.customerId = customerId; }
+    public List<CartOperation> getOperations() { return operations; }
+    public void setOperations(List<CartOperation> operations) { this.operations = operations; }
+}
@@ -10,6 +10,10 @@ public class CartItemResponse {
     private BigDecimal unitPrice;
     private BigDecimal totalPrice;
     private String imageUrl;
+    // what this customer can have: stock less other customers' holds
+    private int availableQuantity;
+    // quantity currently held for this customer, 0 once the hold has lapsed
+    private int reservedQuantity;
 
     // Constructors
     public CartItemResponse(Integer productId, String productName, int quantity, BigDecimal unitPrice) {
@@ -29,6 +33,12 @@ public class CartItemResponse {
         this.setImageUrl(imageUrl);
     }
 
+    // Cart query projection: availableQuantity starts as the product's stock, before holds are taken off
+    public CartItemResponse(Integer productId, String productName, int quantity, BigDecimal unitPrice, String imageUrl, Integer stock) {
+        this(productId, productName, quantity, unitPrice, imageUrl);
+        this.setAvailableQuantity(stock);
+    }
+
 	public Integer getProductId() {
 		return productId;
 	}
@@ -77,6 +87,22 @@ public class CartItemResponse {
 		this.imageUrl = imageUrl;
 	}
 
+	public int getAvailableQuantity() {
+		return availableQuantity;
+	}
+
+	public void setAvailableQuantity(int availableQuantity) {
+		this.availableQuantity = availableQuantity;
+	}
+
+	public int getReservedQuantity() {
+		return reservedQuantity;
+	}
+
+	public void setReservedQuantity(int reservedQuantity) {
+		this.reservedQuantity = reservedQuantity;
+	}
+
     // Getters and setters
     // ...
 }
@@ -0,0 +1,29 @@
+package com.example.gros.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.validation.constraints.NotNull;
+
+public class CartOperation {
+
+    public enum Type {
+        @JsonProperty("add") ADD,
+        @JsonProperty("update") UPDATE,
+        @JsonProperty("remove") REMOVE
+    }
+
+    @NotNull
+    private Type op;
+
+    @NotNull
+    private Integer productId;
+
+    // required for add and update, ignored for remove
+    private Integer quantity;
+
+    public Type getOp() { return op; }
+    public void setOp(Type op) { this.op = op; }
+    public Integer getProductId() { return productId; }
+    public void setProductId(Integer productId) { this.productId = productId; }
+    public Integer getQuantity() { return quantity; }
+    public void setQuantity(Integer quantity) { this.quantity = quantity; }
+}
@@ -0,0 +1,17 @@
+package com.example.gros.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public class CartView {
+    private List<CartItemResponse> items;
+    private BigDecimal cartTotal;
+
+    public CartView(List<CartItemResponse> items, BigDecimal cartTotal) {
+        this.items = items;
+        this.cartTotal = cartTotal;
+    }
+
+    public List<CartItemResponse> getItems() { return items; }
+    public BigDecimal getCartTotal() { return cartTotal; }
+}
@@ -0,0 +1,68 @@
+package com.example.gros.dto;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+// Parsed "fields=" parameter: the subset of an endpoint's fields the client asked for.
+// Each selectable field maps to one SQL expression, so projections read only those columns.
+// Fields with no SQL expression (e.g. a nested collection) are selectable but loaded separately.
+public final class FieldSelection {
+
+    public record Field(String name, String sql, Class<?> type) {}
+
+    private final List<Field> fields;
+
+    private FieldSelection(List<Field> fields) {
+        this.fields = fields;
+    }
+
+    // The required field is always included first, whether or not it was asked for
+    public static FieldSelection parse(String fields, List<Field> available, String required) {
+        Map<String, Field> byName = new LinkedHashMap<>();
+        for (Field field : available) {
+            byName.put(field.name(), field);
+        }
+        Map<String, Field> selected = new LinkedHashMap<>();
+        selected.put(required, byName.get(required));
+        for (String name : fields.split(",")) {
+            String trimmed = name.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            Field field = byName.get(trimmed);
+            if (field == null) {
+                throw new IllegalArgumentException("Unknown field: " + trimmed + " (use " + String.join(", ", byName.keySet()) + ")");
+            }
+            selected.put(trimmed, field);
+        }
+        return new FieldSelection(new ArrayList<>(selected.values()));
+    }
+
+    public boolean includes(String name) {
+        return fields.stream().anyMatch(field -> field.name().equals(name));
+    }
+
+    public String selectList() {
+        return fields.stream()
+                .filter(field -> field.sql() != null)
+                .map(Field::sql)
+                .collect(Collectors.joining(", "));
+    }
+
+    // Reads the selected columns of the current row, in select-list order
+    public Map<String, Object> read(ResultSet rs) throws SQLException {
+        Map<String, Object> row = new LinkedHashMap<>();
+        int column = 1;
+        for (Field field : fields) {
+            if (field.sql() != null) {
+                row.put(field.name(), rs.getObject(column++, field.type()));
+            }
+        }
+        return row;
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.gros.dto;
+
+public class ProductDeletionResult {
+    private final int productsDeleted;
+
+    public ProductDeletionResult(int productsDeleted) {
+        this.productsDeleted = productsDeleted;
+    }
+
+    public int getProductsDeleted() { return productsDeleted; }
+}
@@ -0,0 +1,41 @@
+package com.example.gros.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ProductImportResult {
+    // only the first errors are reported, the count still covers every failed row
+    public static final int MAX_REPORTED_ERRORS = 100;
+
+    public static class RowError {
+        private final long line;
+        private final String message;
+
+        public RowError(long line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+
+        public long getLine() { return line; }
+        public String getMessage() { return message; }
+    }
+
+    private long imported;
+    private long failed;
+    private final List<RowError> errors = new ArrayList<>();
+
+    public void addImported(int count) {
+        imported += count;
+    }
+
+    public void addError(long line, String message) {
+        failed++;
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add(new RowError(line, message));
+        }
+    }
+
+    public long getImported() { return imported; }
+    public long getFailed() { return failed; }
+    public List<RowError> getErrors() { return errors; }
+}
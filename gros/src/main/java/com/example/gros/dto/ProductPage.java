@@ -0,0 +1,18 @@
+package com.example.gros.dto;
+
+import java.util.List;
+
+// Items are Products, or field maps when the request asked for a sparse fieldset
+public class ProductPage<T> {
+    private List<T> items;
+    // productId to pass as "after" for the next page; null on the last page
+    private Integer nextAfter;
+
+    public ProductPage(List<T> items, Integer nextAfter) {
+        this.items = items;
+        this.nextAfter = nextAfter;
+    }
+
+    public List<T> getItems() { return items; }
+    public Integer getNextAfter() { return nextAfter; }
+}
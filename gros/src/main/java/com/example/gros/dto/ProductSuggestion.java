@@ -0,0 +1,14 @@
+package com.example.gros.dto;
+
+public class ProductSuggestion {
+    private Integer productId;
+    private String productName;
+
+    public ProductSuggestion(Integer productId, String productName) {
+        this.productId = productId;
+        this.productName = productName;
+    }
+
+    public Integer getProductId() { return productId; }
+    public String getProductName() { return productName; }
+}
@@ -0,0 +1,40 @@
+package com.example.gros.event;
+
+import com.example.gros.model.Product;
+
+// Published by ProductService whenever a product row changes, so in-memory views can follow along
+public class ProductChangedEvent {
+    public enum Type { CREATED, UPDATED, DELETED, STOCK_CHANGED }
+
+    private final Type type;
+    private final Integer productId;
+    private final Product product;
+
+    public ProductChangedEvent(Type type, Integer productId, Product product) {
+        this.type = type;
+        this.productId = productId;
+        this.product = product;
+    }
+
+    public static ProductChangedEvent created(Product product) {
+        return new ProductChangedEvent(Type.CREATED, product.getProductId(), product);
+    }
+
+    public static ProductChangedEvent updated(Product product) {
+        return new ProductChangedEvent(Type.UPDATED, product.getProductId(), product);
+    }
+
+    // Only quantity changed (e.g. an order was placed); name and description are untouched
+    public static ProductChangedEvent stockChanged(Product product) {
+        return new ProductChangedEvent(Type.STOCK_CHANGED, product.getProductId(), product);
+    }
+
+    public static ProductChangedEvent deleted(Integer productId) {
+        return new ProductChangedEvent(Type.DELETED, productId, null);
+    }
+
+    public Type getType() { return type; }
+    public Integer getProductId() { return productId; }
+    // null for DELETED events
+    public Product getProduct() { return product; }
+}
@@ -3,7 +3,9 @@ package com.example.gros.model;
 import jakarta.persistence.*;
 
 @Entity
-@Table(name = "cart_item")
+@Table(name = "cart_item", uniqueConstraints =
+    // one line per product per customer; lets adds be a single MERGE on this key
+    @UniqueConstraint(name = "uk_cart_item_user_product", columnNames = {"user_id", "product_id"}))
 public class CartItem {
 
     @Id
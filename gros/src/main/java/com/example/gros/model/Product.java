@@ -2,11 +2,18 @@ package com.example.gros.model;
 
 import java.math.BigDecimal;
 
+import org.hibernate.annotations.ColumnDefault;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 
 @Entity
-@Table(name = "product")
+@Table(name = "product", indexes = {
+    @Index(name = "idx_product_price", columnList = "price, product_id"),
+    @Index(name = "idx_product_name", columnList = "product_name, product_id")
+})
 public class Product {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -36,6 +43,12 @@ public class Product {
     @Column
     private String reserved = "NO";
 
+    // Soft delete: hidden from the catalog but kept for order history
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @ColumnDefault("false")
+    @Column(nullable = false)
+    private boolean discontinued = false;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "customer_id")
     private User customer;
@@ -55,6 +68,8 @@ public class Product {
     public void setImageUrl(String imageUrl) { this.imageUrl = imageUrl; }
     public String getReserved() { return reserved; }
     public void setReserved(String reserved) { this.reserved = reserved; }
+    public boolean isDiscontinued() { return discontinued; }
+    public void setDiscontinued(boolean discontinued) { this.discontinued = discontinued; }
     public User getCustomer() { return customer; }
     public void setCustomer(User customer) { this.customer = customer; }
 } 
\ No newline at end of file
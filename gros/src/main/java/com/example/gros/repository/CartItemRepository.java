@@ -1,14 +1,33 @@
 package com.example.gros.repository;
 
+import com.example.gros.dto.CartItemResponse;
 import com.example.gros.model.CartItem;
 import com.example.gros.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
 import java.util.Optional;
 
 public interface CartItemRepository extends JpaRepository<CartItem, Integer> {
     List<CartItem> findByUser(User user);
+    // cart lines whose product has not been discontinued (those are purged later by the compaction job)
+    List<CartItem> findByUserAndProduct_DiscontinuedFalse(User user);
     Optional<CartItem> findByUserAndProduct_ProductId(User user, Integer productId);
     void deleteByUser(User user);
     List<CartItem> findByProduct_ProductId(Integer productId);
+
+    // The whole cart in one join, straight into response rows; no User or Product entities are loaded
+    @Query("select new com.example.gros.dto.CartItemResponse(p.productId, p.productName, c.quantity, p.price, p.imageUrl, p.quantity) " +
+           "from CartItem c join c.product p where c.user.customerId = :customerId and p.discontinued = false order by c.id")
+    List<CartItemResponse> findCartView(@Param("customerId") Integer customerId);
+
+    // Removes up to batchSize cart lines that point at discontinued products, in its own transaction
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM cart_item WHERE id IN (SELECT c.id FROM cart_item c JOIN product p ON p.product_id = c.product_id " +
+                   "WHERE p.discontinued = TRUE LIMIT :batchSize)", nativeQuery = true)
+    int deleteDiscontinuedBatch(@Param("batchSize") int batchSize);
 }
@@ -0,0 +1,93 @@
+package com.example.gros.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// cart_item rows as plain productId -> quantity lines, read and written with JDBC batches.
+// Used by the batch cart endpoint and the write-behind cart store, which never need entities.
+@Repository
+public class CartLineRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    public CartLineRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // The customer's lines in the order they were added
+    public Map<Integer, Integer> findLines(Integer customerId) {
+        Map<Integer, Integer> lines = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT product_id, quantity FROM cart_item WHERE user_id = ? ORDER BY id",
+                rs -> {
+                    lines.put(rs.getInt(1), rs.getInt(2));
+                }, customerId);
+        return lines;
+    }
+
+    // Sets the quantity of one cart line, inserting it if needed, in a single statement keyed on
+    // (user_id, product_id). Returns 0 when the product is unknown or discontinued; an unknown
+    // customer fails the user_id foreign key.
+    public int upsert(Integer customerId, Integer productId, int quantity) {
+        return jdbcTemplate.update("MERGE INTO cart_item (user_id, product_id, quantity) KEY (user_id, product_id) " +
+                "SELECT ?, p.product_id, ? FROM product p WHERE p.product_id = ? AND p.discontinued = FALSE",
+                customerId, quantity, productId);
+    }
+
+    // Writes only the difference between two states of one cart: one delete batch and one MERGE batch.
+    // Like upsert, a line is only written for a product that exists and is not discontinued; the
+    // products that matched nothing are returned so the caller can fail its transaction.
+    public List<Integer> writeChanges(Integer customerId, Map<Integer, Integer> before, Map<Integer, Integer> after) {
+        List<Object[]> upserts = new ArrayList<>();
+        List<Object[]> deletes = new ArrayList<>();
+        for (Map.Entry<Integer, Integer> line : after.entrySet()) {
+            if (!line.getValue().equals(before.get(line.getKey()))) {
+                upserts.add(new Object[] {customerId, line.getValue(), line.getKey()});
+            }
+        }
+        for (Integer productId : before.keySet()) {
+            if (!after.containsKey(productId)) {
+                deletes.add(new Object[] {customerId, productId});
+            }
+        }
+        if (!deletes.isEmpty()) {
+            jdbcTemplate.batchUpdate("DELETE FROM cart_item WHERE user_id = ? AND product_id = ?", deletes);
+        }
+        List<Integer> rejected = new ArrayList<>();
+        if (!upserts.isEmpty()) {
+            int[] merged = jdbcTemplate.batchUpdate("MERGE INTO cart_item (user_id, product_id, quantity) KEY (user_id, product_id) " +
+                    "SELECT ?, p.product_id, ? FROM product p WHERE p.product_id = ? AND p.discontinued = FALSE", upserts);
+            for (int i = 0; i < merged.length; i++) {
+                if (merged[i] == 0) {
+                    rejected.add((Integer) upserts.get(i)[2]);
+                }
+            }
+        }
+        return rejected;
+    }
+
+    // Replaces the rows of every given cart (customerId -> lines), batchSize statements per round trip.
+    // Lines for products no longer in the table (hard-deleted by compaction) are skipped, not failed.
+    public void replaceCarts(Map<Integer, Map<Integer, Integer>> carts, int batchSize) {
+        List<Object[]> customers = new ArrayList<>(carts.size());
+        List<Object[]> rows = new ArrayList<>();
+        for (Map.Entry<Integer, Map<Integer, Integer>> cart : carts.entrySet()) {
+            customers.add(new Object[] {cart.getKey()});
+            for (Map.Entry<Integer, Integer> line : cart.getValue().entrySet()) {
+                rows.add(new Object[] {cart.getKey(), line.getValue(), line.getKey()});
+            }
+        }
+        for (int from = 0; from < customers.size(); from += batchSize) {
+            jdbcTemplate.batchUpdate("DELETE FROM cart_item WHERE user_id = ?",
+                    customers.subList(from, Math.min(from + batchSize, customers.size())));
+        }
+        for (int from = 0; from < rows.size(); from += batchSize) {
+            jdbcTemplate.batchUpdate("INSERT INTO cart_item (user_id, product_id, quantity) " +
+                    "SELECT ?, p.product_id, ? FROM product p WHERE p.product_id = ?",
+                    rows.subList(from, Math.min(from + batchSize, rows.size())));
+        }
+    }
+}
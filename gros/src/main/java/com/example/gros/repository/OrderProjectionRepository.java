@@ -0,0 +1,72 @@
+package com.example.gros.repository;
+
+import com.example.gros.dto.FieldSelection;
+import com.example.gros.dto.OrderItemResponse;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Sparse-fieldset reads of orders. The customer join and the item query only run when
+// their fields are selected; items for all matched orders come from one extra query.
+@Repository
+public class OrderProjectionRepository {
+    private static final List<FieldSelection.Field> FIELDS = List.of(
+        new FieldSelection.Field("id", "o.order_id", Integer.class),
+        new FieldSelection.Field("orderTime", "o.order_time", LocalDateTime.class),
+        new FieldSelection.Field("totalAmount", "o.total_amount", BigDecimal.class),
+        new FieldSelection.Field("customerName", "u.customer_name", String.class),
+        new FieldSelection.Field("customerEmail", "u.email", String.class),
+        new FieldSelection.Field("items", null, null)
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public OrderProjectionRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public static FieldSelection select(String fields) {
+        return FieldSelection.parse(fields, FIELDS, "id");
+    }
+
+    // Orders matching the optional customer / order id filters, by order id
+    public List<Map<String, Object>> find(FieldSelection selection, Integer customerId, Integer orderId) {
+        StringBuilder where = new StringBuilder(" WHERE 1 = 1");
+        List<Object> args = new ArrayList<>();
+        if (customerId != null) {
+            where.append(" AND o.customer_id = ?");
+            args.add(customerId);
+        }
+        if (orderId != null) {
+            where.append(" AND o.order_id = ?");
+            args.add(orderId);
+        }
+        String join = selection.includes("customerName") || selection.includes("customerEmail")
+                ? " LEFT JOIN registration u ON u.customer_id = o.customer_id"
+                : "";
+        List<Map<String, Object>> orders = jdbcTemplate.query(
+                "SELECT " + selection.selectList() + " FROM order_table o" + join + where + " ORDER BY o.order_id",
+                (rs, rowNum) -> selection.read(rs), args.toArray());
+        if (!selection.includes("items") || orders.isEmpty()) {
+            return orders;
+        }
+        Map<Integer, List<OrderItemResponse>> itemsByOrder = new HashMap<>();
+        jdbcTemplate.query("SELECT oi.order_id, p.product_name, oi.price, oi.quantity FROM order_item oi " +
+                "JOIN order_table o ON o.order_id = oi.order_id JOIN product p ON p.product_id = oi.product_id" +
+                where + " ORDER BY oi.id",
+                rs -> {
+                    itemsByOrder.computeIfAbsent(rs.getInt(1), id -> new ArrayList<>())
+                            .add(new OrderItemResponse(rs.getString(2), rs.getBigDecimal(3), rs.getInt(4)));
+                }, args.toArray());
+        for (Map<String, Object> order : orders) {
+            order.put("items", itemsByOrder.getOrDefault((Integer) order.get("id"), List.of()));
+        }
+        return orders;
+    }
+}
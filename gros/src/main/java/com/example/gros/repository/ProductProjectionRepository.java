@@ -0,0 +1,100 @@
+package com.example.gros.repository;
+
+import com.example.gros.dto.FieldSelection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Sparse-fieldset reads of active products: selects only the requested columns and returns
+// each row as a field map, so unused columns are neither read nor serialized.
+@Repository
+public class ProductProjectionRepository {
+    private static final List<FieldSelection.Field> FIELDS = List.of(
+        new FieldSelection.Field("productId", "product_id", Integer.class),
+        new FieldSelection.Field("productName", "product_name", String.class),
+        new FieldSelection.Field("price", "price", BigDecimal.class),
+        new FieldSelection.Field("quantity", "quantity", Integer.class),
+        new FieldSelection.Field("productDescription", "product_description", String.class),
+        new FieldSelection.Field("imageUrl", "image_url", String.class),
+        new FieldSelection.Field("reserved", "reserved", String.class)
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ProductProjectionRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // static so an unknown field surfaces as IllegalArgumentException, not a translated DataAccessException
+    public static FieldSelection select(String fields) {
+        return FieldSelection.parse(fields, FIELDS, "productId");
+    }
+
+    public List<Map<String, Object>> findAll(FieldSelection selection) {
+        return jdbcTemplate.query("SELECT " + selection.selectList() + " FROM product WHERE discontinued = FALSE ORDER BY product_id",
+                (rs, rowNum) -> selection.read(rs));
+    }
+
+    public List<Map<String, Object>> findByNameContaining(FieldSelection selection, String name) {
+        String pattern = "%" + name.toLowerCase().replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        return jdbcTemplate.query("SELECT " + selection.selectList() + " FROM product WHERE discontinued = FALSE " +
+                "AND LOWER(product_name) LIKE ? ESCAPE '\\' ORDER BY product_id",
+                (rs, rowNum) -> selection.read(rs), pattern);
+    }
+
+    // Rows for the given ids in the order given; unknown or discontinued ids are left out
+    public List<Map<String, Object>> findByIds(FieldSelection selection, Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        Map<Object, Map<String, Object>> byId = new HashMap<>();
+        jdbcTemplate.query("SELECT " + selection.selectList() + " FROM product WHERE discontinued = FALSE " +
+                "AND product_id IN (" + placeholders + ")",
+                rs -> {
+                    Map<String, Object> row = selection.read(rs);
+                    byId.put(row.get("productId"), row);
+                }, ids.toArray());
+        List<Map<String, Object>> ordered = new ArrayList<>(byId.size());
+        for (Integer id : ids) {
+            Map<String, Object> row = byId.get(id);
+            if (row != null) {
+                ordered.add(row);
+            }
+        }
+        return ordered;
+    }
+
+    // Keyset page ordered by sortColumn (null for id order) then product_id. With after set,
+    // cursorValue is that product's sortColumn value.
+    public List<Map<String, Object>> findPage(FieldSelection selection, String sortColumn, Object cursorValue, Integer after, int size) {
+        StringBuilder sql = new StringBuilder("SELECT ").append(selection.selectList())
+                .append(" FROM product WHERE discontinued = FALSE");
+        List<Object> args = new ArrayList<>();
+        if (after != null) {
+            if (sortColumn == null) {
+                sql.append(" AND product_id > ?");
+                args.add(after);
+            } else {
+                sql.append(" AND (").append(sortColumn).append(" > ? OR (").append(sortColumn).append(" = ? AND product_id > ?))");
+                args.add(cursorValue);
+                args.add(cursorValue);
+                args.add(after);
+            }
+        }
+        sql.append(" ORDER BY ");
+        if (sortColumn != null) {
+            sql.append(sortColumn).append(", ");
+        }
+        sql.append("product_id LIMIT ?");
+        args.add(size);
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> selection.read(rs), args.toArray());
+    }
+}
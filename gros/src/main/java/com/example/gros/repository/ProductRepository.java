@@ -1,9 +1,63 @@
 package com.example.gros.repository;
 
 import com.example.gros.model.Product;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.repository.query.Param;
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
+// Discontinued products stay in the table for order history; catalog queries filter them out
 public interface ProductRepository extends JpaRepository<Product, Integer> {
-    List<Product> findByProductNameContainingIgnoreCase(String name);
-}
\ No newline at end of file
+    List<Product> findByDiscontinuedFalse();
+
+    Optional<Product> findByProductIdAndDiscontinuedFalse(Integer productId);
+
+    List<Product> findByProductIdInAndDiscontinuedFalse(Collection<Integer> productIds);
+
+    List<Product> findByProductNameContainingIgnoreCaseAndDiscontinuedFalse(String name);
+
+    // Search fallback while the index builds: substring matches only, in id order
+    List<Product> findByProductNameContainingIgnoreCaseAndDiscontinuedFalseOrderByProductIdAsc(String name, Limit limit);
+
+    // Forward-only cursor for exports; must be consumed inside a transaction and closed
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Product> streamByDiscontinuedFalseOrderByProductIdAsc();
+
+    // Keyset pages: each query seeks past the last row of the previous page on an index
+    List<Product> findByDiscontinuedFalseOrderByProductIdAsc(Limit limit);
+
+    List<Product> findByProductIdGreaterThanAndDiscontinuedFalseOrderByProductIdAsc(Integer productId, Limit limit);
+
+    List<Product> findByDiscontinuedFalseOrderByPriceAscProductIdAsc(Limit limit);
+
+    @Query("select p from Product p where p.discontinued = false and " +
+           "(p.price > :price or (p.price = :price and p.productId > :productId)) " +
+           "order by p.price asc, p.productId asc")
+    List<Product> findPageAfterPrice(@Param("price") BigDecimal price, @Param("productId") Integer productId, Limit limit);
+
+    List<Product> findByDiscontinuedFalseOrderByProductNameAscProductIdAsc(Limit limit);
+
+    @Query("select p from Product p where p.discontinued = false and " +
+           "(p.productName > :name or (p.productName = :name and p.productId > :productId)) " +
+           "order by p.productName asc, p.productId asc")
+    List<Product> findPageAfterName(@Param("name") String name, @Param("productId") Integer productId, Limit limit);
+
+    @Query("select p.productId from Product p where p.productId in :productIds and p.discontinued = false")
+    List<Integer> findActiveIds(@Param("productIds") Collection<Integer> productIds);
+
+    @Modifying
+    @Query("update Product p set p.discontinued = true where p.productId in :productIds and p.discontinued = false")
+    int discontinueByProductIds(@Param("productIds") Collection<Integer> productIds);
+}
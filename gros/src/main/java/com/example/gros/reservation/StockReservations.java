@@ -0,0 +1,259 @@
+package com.example.gros.reservation;
+
+import com.example.gros.model.Product;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+// Time-bounded stock holds for cart lines. Each cart line holds its quantity of the product for
+// gros.cart.reservation.ttl-ms after its last edit; what other customers can add or check out is
+// stock minus everyone else's holds. Holds live in memory, counted per product under that
+// product's monitor, so no product row is locked or written. Expiry runs off a hierarchical timing
+// wheel turned every gros.cart.reservation.tick-ms rather than polling the database; the holds
+// that come due are released in batches, one monitor acquisition per product per batch.
+// A lapsed hold leaves the cart line in place: it is taken again on the next edit or at checkout.
+@Component
+public class StockReservations {
+    private static final Logger logger = LoggerFactory.getLogger(StockReservations.class);
+
+    private static final class Hold {
+        final Integer customerId;
+        final Integer productId;
+        int quantity;
+        TimingWheel.Timer<Hold> timer;
+
+        Hold(Integer customerId, Integer productId) {
+            this.customerId = customerId;
+            this.productId = productId;
+        }
+    }
+
+    private static final class ProductHolds {
+        int reserved;
+        final Map<Integer, Hold> byCustomer = new HashMap<>();
+    }
+
+    private final Map<Integer, ProductHolds> products = new ConcurrentHashMap<>();
+    // customerId -> products the customer holds, for releasing a whole cart
+    private final Map<Integer, Set<Integer>> customers = new ConcurrentHashMap<>();
+    // lock order: product monitor, then the wheel
+    private final TimingWheel<Hold> wheel;
+    private final long ttlMillis;
+    private final int releaseBatchSize;
+    private final LongAdder holdsTaken = new LongAdder();
+    private final LongAdder holdsRefused = new LongAdder();
+    private final LongAdder holdsExpired = new LongAdder();
+    private final LongAdder releaseBatches = new LongAdder();
+
+    public StockReservations(@Value("${gros.cart.reservation.ttl-ms:900000}") long ttlMillis,
+                             @Value("${gros.cart.reservation.tick-ms:1000}") long tickMillis,
+                             @Value("${gros.cart.reservation.release-batch-size:500}") int releaseBatchSize) {
+        this.ttlMillis = ttlMillis;
+        this.releaseBatchSize = Math.max(1, releaseBatchSize);
+        this.wheel = new TimingWheel<>(tickMillis, System.currentTimeMillis());
+    }
+
+    // Sets the customer's holds to the given quantities (0 releases) and restarts their TTL.
+    // All or nothing: if one product lacks stock the earlier ones are put back and this throws.
+    // Returns the quantities held before, for restore() if the cart write then fails.
+    // products resolves a product id, or null when it is no longer sold (its hold is released).
+    public Map<Integer, Integer> holdAll(Integer customerId, Map<Integer, Integer> quantities, Function<Integer, Product> products) {
+        Map<Integer, Integer> previous = new LinkedHashMap<>();
+        try {
+            for (Map.Entry<Integer, Integer> line : quantities.entrySet()) {
+                Product product = line.getValue() > 0 ? products.apply(line.getKey()) : null;
+                previous.put(line.getKey(), product == null
+                        ? set(customerId, line.getKey(), 0)
+                        : hold(customerId, product, line.getValue()));
+            }
+        } catch (RuntimeException e) {
+            restore(customerId, previous);
+            throw e;
+        }
+        return previous;
+    }
+
+    // Puts holds back to what holdAll returned, without checking stock
+    public void restore(Integer customerId, Map<Integer, Integer> previous) {
+        previous.forEach((productId, quantity) -> set(customerId, productId, quantity));
+    }
+
+    public void releaseAll(Integer customerId) {
+        Set<Integer> held = customers.remove(customerId);
+        if (held != null) {
+            for (Integer productId : held) {
+                set(customerId, productId, 0);
+            }
+        }
+    }
+
+    // Stock the customer can still have: everything not held for someone else
+    public int available(Integer productId, int stock, Integer customerId) {
+        ProductHolds holds = products.get(productId);
+        if (holds == null) {
+            return stock;
+        }
+        synchronized (holds) {
+            Hold own = holds.byCustomer.get(customerId);
+            int others = holds.reserved - (own == null ? 0 : own.quantity);
+            return Math.max(0, stock - others);
+        }
+    }
+
+    // Quantity currently held for the customer, 0 once the hold lapsed
+    public int held(Integer customerId, Integer productId) {
+        ProductHolds holds = products.get(productId);
+        if (holds == null) {
+            return 0;
+        }
+        synchronized (holds) {
+            Hold hold = holds.byCustomer.get(customerId);
+            return hold == null ? 0 : hold.quantity;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${gros.cart.reservation.tick-ms:1000}")
+    public void expire() {
+        List<TimingWheel.Timer<Hold>> due;
+        synchronized (wheel) {
+            due = wheel.advance(System.currentTimeMillis());
+        }
+        for (int from = 0; from < due.size(); from += releaseBatchSize) {
+            release(due.subList(from, Math.min(due.size(), from + releaseBatchSize)));
+        }
+        if (!due.isEmpty()) {
+            logger.debug("Released {} expired stock holds", due.size());
+        }
+    }
+
+    public Map<String, Object> stats() {
+        int holds = 0;
+        long units = 0;
+        for (ProductHolds product : products.values()) {
+            synchronized (product) {
+                holds += product.byCustomer.size();
+                units += product.reserved;
+            }
+        }
+        int timers;
+        synchronized (wheel) {
+            timers = wheel.size();
+        }
+        return Map.of(
+            "holds", holds,
+            "reservedUnits", units,
+            "pendingTimers", timers,
+            "holdsTaken", holdsTaken.sum(),
+            "holdsRefused", holdsRefused.sum(),
+            "holdsExpired", holdsExpired.sum(),
+            "releaseBatches", releaseBatches.sum(),
+            "ttlMillis", ttlMillis
+        );
+    }
+
+    private int hold(Integer customerId, Product product, int quantity) {
+        ProductHolds holds = products.computeIfAbsent(product.getProductId(), id -> new ProductHolds());
+        synchronized (holds) {
+            Hold own = holds.byCustomer.get(customerId);
+            int previous = own == null ? 0 : own.quantity;
+            if (product.getQuantity() - (holds.reserved - previous) < quantity) {
+                holdsRefused.increment();
+                throw new IllegalArgumentException("Insufficient stock for: " + product.getProductName());
+            }
+            holdsTaken.increment();
+            return put(holds, customerId, product.getProductId(), quantity);
+        }
+    }
+
+    // Returns the previous quantity
+    private int set(Integer customerId, Integer productId, int quantity) {
+        ProductHolds holds = quantity > 0
+                ? products.computeIfAbsent(productId, id -> new ProductHolds())
+                : products.get(productId);
+        if (holds == null) {
+            return 0;
+        }
+        synchronized (holds) {
+            return put(holds, customerId, productId, quantity);
+        }
+    }
+
+    // Caller holds the product's monitor
+    private int put(ProductHolds holds, Integer customerId, Integer productId, int quantity) {
+        Hold hold = holds.byCustomer.get(customerId);
+        int previous = hold == null ? 0 : hold.quantity;
+        if (hold != null) {
+            hold.timer.cancel();
+        }
+        if (quantity <= 0) {
+            if (hold != null) {
+                holds.byCustomer.remove(customerId);
+                holds.reserved -= previous;
+                forget(customerId, productId);
+            }
+            return previous;
+        }
+        if (hold == null) {
+            hold = new Hold(customerId, productId);
+            holds.byCustomer.put(customerId, hold);
+            customers.compute(customerId, (id, held) -> {
+                Set<Integer> products = held == null ? new HashSet<>() : held;
+                products.add(productId);
+                return products;
+            });
+        }
+        holds.reserved += quantity - previous;
+        hold.quantity = quantity;
+        synchronized (wheel) {
+            hold.timer = wheel.schedule(hold, System.currentTimeMillis() + ttlMillis);
+        }
+        return previous;
+    }
+
+    // One monitor acquisition per product for the whole batch
+    private void release(List<TimingWheel.Timer<Hold>> batch) {
+        Map<Integer, List<TimingWheel.Timer<Hold>>> byProduct = new HashMap<>();
+        for (TimingWheel.Timer<Hold> timer : batch) {
+            byProduct.computeIfAbsent(timer.value().productId, id -> new ArrayList<>()).add(timer);
+        }
+        for (Map.Entry<Integer, List<TimingWheel.Timer<Hold>>> entry : byProduct.entrySet()) {
+            ProductHolds holds = products.get(entry.getKey());
+            if (holds == null) {
+                continue;
+            }
+            synchronized (holds) {
+                for (TimingWheel.Timer<Hold> timer : entry.getValue()) {
+                    Hold hold = timer.value();
+                    // skip holds refreshed or released since their timer fired
+                    if (hold.timer == timer && holds.byCustomer.get(hold.customerId) == hold) {
+                        holds.byCustomer.remove(hold.customerId);
+                        holds.reserved -= hold.quantity;
+                        forget(hold.customerId, hold.productId);
+                        holdsExpired.increment();
+                    }
+                }
+            }
+        }
+        releaseBatches.increment();
+    }
+
+    private void forget(Integer customerId, Integer productId) {
+        customers.computeIfPresent(customerId, (id, held) -> {
+            held.remove(productId);
+            return held.isEmpty() ? null : held;
+        });
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.gros.reservation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Hierarchical timing wheel: LEVELS wheels of SLOTS slots each, level n's slot spanning SLOTS^n ticks.
+// A timer goes into the lowest level whose range covers its deadline and moves down a level each
+// time the wheel above it turns over, so scheduling and cancelling are O(1) and advancing costs one
+// slot per tick plus the timers it actually fires or cascades, however many timers are pending.
+// Deadlines beyond the top level's range are held in its farthest slot and re-cascaded until due.
+// Not thread-safe: callers synchronize.
+public class TimingWheel<T> {
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+
+    public static final class Timer<T> {
+        private final T value;
+        private final long tick;
+        private volatile boolean cancelled;
+
+        private Timer(T value, long tick) {
+            this.value = value;
+            this.tick = tick;
+        }
+
+        public T value() { return value; }
+
+        // The slot drops cancelled timers when it next comes round
+        public void cancel() { cancelled = true; }
+
+        public boolean isCancelled() { return cancelled; }
+    }
+
+    private final long tickMillis;
+    private final List<List<List<Timer<T>>>> wheels = new ArrayList<>(LEVELS);
+    // last tick processed
+    private long currentTick;
+    private int size;
+
+    public TimingWheel(long tickMillis, long startMillis) {
+        this.tickMillis = Math.max(1, tickMillis);
+        this.currentTick = startMillis / this.tickMillis;
+        for (int level = 0; level < LEVELS; level++) {
+            List<List<Timer<T>>> slots = new ArrayList<>(SLOTS);
+            for (int slot = 0; slot < SLOTS; slot++) {
+                slots.add(new ArrayList<>());
+            }
+            wheels.add(slots);
+        }
+    }
+
+    // Deadlines already passed fire on the next advance
+    public Timer<T> schedule(T value, long deadlineMillis) {
+        Timer<T> timer = new Timer<>(value, Math.max(deadlineMillis / tickMillis, currentTick + 1));
+        place(timer);
+        size++;
+        return timer;
+    }
+
+    // Turns the wheel up to nowMillis and returns the timers that came due, cancelled ones excluded
+    public List<Timer<T>> advance(long nowMillis) {
+        List<Timer<T>> due = new ArrayList<>();
+        long target = nowMillis / tickMillis;
+        while (currentTick < target) {
+            currentTick++;
+            // the highest wheel that turned over refills the ones below it, top down
+            for (int level = LEVELS - 1; level > 0; level--) {
+                if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                    List<Timer<T>> slot = slot(level, currentTick);
+                    List<Timer<T>> cascading = new ArrayList<>(slot);
+                    slot.clear();
+                    for (Timer<T> timer : cascading) {
+                        if (timer.cancelled) {
+                            size--;
+                        } else {
+                            place(timer);
+                        }
+                    }
+                }
+            }
+            List<Timer<T>> slot = slot(0, currentTick);
+            for (Timer<T> timer : slot) {
+                size--;
+                if (!timer.cancelled) {
+                    due.add(timer);
+                }
+            }
+            slot.clear();
+        }
+        return due;
+    }
+
+    // Timers still in the wheel, including cancelled ones not yet swept
+    public int size() {
+        return size;
+    }
+
+    private void place(Timer<T> timer) {
+        long delta = timer.tick - currentTick;
+        for (int level = 0; level < LEVELS; level++) {
+            if (delta < 1L << (SLOT_BITS * (level + 1))) {
+                slot(level, timer.tick).add(timer);
+                return;
+            }
+        }
+        // past the top wheel's range: park one turn ahead and re-place when that slot cascades
+        int top = LEVELS - 1;
+        slot(top, currentTick + ((long) MASK << (SLOT_BITS * top))).add(timer);
+    }
+
+    private List<Timer<T>> slot(int level, long tick) {
+        return wheels.get(level).get((int) ((tick >>> (SLOT_BITS * level)) & MASK));
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.gros.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Burkhard-Keller tree over terms using optimal string alignment distance
+// (Levenshtein plus adjacent transpositions, so "appels" is one edit from "apples").
+// A lookup only descends into children whose edge distance is within maxDistance
+// of the query's distance to the node, which keeps it far below a full scan.
+// OSA is not strictly a metric, so a rare borderline match can be missed; that is fine for typos.
+// Not thread-safe; callers guard it.
+public class BkTree {
+
+    private static final class Node {
+        final String term;
+        Node[] children = new Node[0];
+
+        Node(String term) {
+            this.term = term;
+        }
+    }
+
+    private Node root;
+    private int size;
+
+    public void clear() {
+        root = null;
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void add(String term) {
+        if (root == null) {
+            root = new Node(term);
+            size++;
+            return;
+        }
+        Node node = root;
+        while (true) {
+            int d = distance(term, node.term);
+            if (d == 0) {
+                return;
+            }
+            if (d >= node.children.length) {
+                node.children = Arrays.copyOf(node.children, d + 1);
+            }
+            if (node.children[d] == null) {
+                node.children[d] = new Node(term);
+                size++;
+                return;
+            }
+            node = node.children[d];
+        }
+    }
+
+    public List<String> search(String query, int maxDistance) {
+        List<String> matches = new ArrayList<>();
+        if (root == null) {
+            return matches;
+        }
+        List<Node> pending = new ArrayList<>();
+        pending.add(root);
+        while (!pending.isEmpty()) {
+            Node node = pending.remove(pending.size() - 1);
+            int d = distance(query, node.term);
+            if (d <= maxDistance) {
+                matches.add(node.term);
+            }
+            int from = Math.max(1, d - maxDistance);
+            int to = Math.min(node.children.length - 1, d + maxDistance);
+            for (int i = from; i <= to; i++) {
+                if (node.children[i] != null) {
+                    pending.add(node.children[i]);
+                }
+            }
+        }
+        return matches;
+    }
+
+    static int distance(String a, String b) {
+        int n = a.length();
+        int m = b.length();
+        int[] prevPrev = new int[m + 1];
+        int[] prev = new int[m + 1];
+        int[] curr = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            prev[j] = j;
+        }
+        for (int i = 1; i <= n; i++) {
+            curr[0] = i;
+            for (int j = 1; j <= m; j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int best = Math.min(Math.min(prev[j] + 1, curr[j - 1] + 1), prev[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    best = Math.min(best, prevPrev[j - 2] + 1);
+                }
+                curr[j] = best;
+            }
+            int[] recycled = prevPrev;
+            prevPrev = prev;
+            prev = curr;
+            curr = recycled;
+        }
+        return prev[m];
+    }
+}
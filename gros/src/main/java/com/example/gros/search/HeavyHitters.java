@@ -0,0 +1,157 @@
+package com.example.gros.search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Approximate top-k counter in bounded memory. A Count-Min sketch (depth rows of width counters)
+// estimates every key's count, and the k keys with the highest estimates are kept as candidates.
+// Sketch updates are lock-free atomic increments. The candidates sit in a map plus a min-heap
+// by estimate under one small lock, so there are never more than k and the weakest is at the
+// root. Estimates only ever overcount, by about total / width with high probability.
+public class HeavyHitters {
+    private static final class Candidate {
+        final String key;
+        long estimate;
+        int slot;
+
+        Candidate(String key, long estimate) {
+            this.key = key;
+            this.estimate = estimate;
+        }
+    }
+
+    private final int depth;
+    private final int width;
+    private final int k;
+    private final AtomicLongArray counts;
+    private final LongAdder total = new LongAdder();
+    // guarded by candidates
+    private final Map<String, Candidate> candidates = new HashMap<>();
+    private final Candidate[] heap;
+    // the weakest candidate's estimate once all k slots are taken, 0 before that. It never goes
+    // down, so a stale read is only ever too low and just means taking the lock.
+    private volatile long floor;
+
+    public HeavyHitters(int k, int depth, int width) {
+        if (k < 1) {
+            throw new IllegalArgumentException("At least one key must be tracked");
+        }
+        this.k = k;
+        this.heap = new Candidate[k];
+        this.depth = depth;
+        this.width = Integer.highestOneBit(Math.max(2, width - 1) << 1);
+        this.counts = new AtomicLongArray(depth * this.width);
+    }
+
+    public void add(String key) {
+        total.increment();
+        int hash = key.hashCode();
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            int slot = row * width + (mix(hash, row) & (width - 1));
+            estimate = Math.min(estimate, counts.incrementAndGet(slot));
+        }
+        // Every add raises all of a key's cells, so a candidate's new estimate is above the one it
+        // holds, which is at least the floor. An estimate at or below the floor belongs to a key
+        // that is not a candidate (or, when adds race, already holds more) and cannot displace one.
+        if (estimate <= floor) {
+            return;
+        }
+        synchronized (candidates) {
+            Candidate candidate = candidates.get(key);
+            if (candidate != null) {
+                if (estimate > candidate.estimate) {
+                    candidate.estimate = estimate;
+                    siftDown(candidate.slot);
+                }
+            } else if (candidates.size() < k) {
+                candidate = new Candidate(key, estimate);
+                candidates.put(key, candidate);
+                place(candidate, candidates.size() - 1);
+                siftUp(candidate.slot);
+            } else if (estimate > heap[0].estimate) {
+                candidates.remove(heap[0].key);
+                candidate = new Candidate(key, estimate);
+                candidates.put(key, candidate);
+                place(candidate, 0);
+                siftDown(0);
+            }
+            if (candidates.size() == k) {
+                floor = heap[0].estimate;
+            }
+        }
+    }
+
+    public long total() {
+        return total.sum();
+    }
+
+    // Candidates by estimated count, highest first
+    public List<Map<String, Object>> top(int limit) {
+        List<Map.Entry<String, Long>> ranked = new ArrayList<>();
+        synchronized (candidates) {
+            for (Candidate candidate : candidates.values()) {
+                ranked.add(Map.entry(candidate.key, candidate.estimate));
+            }
+        }
+        ranked.sort(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()).thenComparing(Map.Entry.comparingByKey()));
+        List<Map<String, Object>> top = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : ranked.subList(0, Math.min(limit, ranked.size()))) {
+            top.add(Map.of("query", entry.getKey(), "count", entry.getValue()));
+        }
+        return top;
+    }
+
+    // Min-heap over heap[0, candidates.size()), each candidate knowing its slot so a raised
+    // estimate sifts down from where it is
+    private void siftUp(int slot) {
+        Candidate moving = heap[slot];
+        while (slot > 0) {
+            int parent = (slot - 1) >>> 1;
+            if (heap[parent].estimate <= moving.estimate) {
+                break;
+            }
+            place(heap[parent], slot);
+            slot = parent;
+        }
+        place(moving, slot);
+    }
+
+    private void siftDown(int slot) {
+        Candidate moving = heap[slot];
+        int size = candidates.size();
+        while (true) {
+            int child = 2 * slot + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && heap[child + 1].estimate < heap[child].estimate) {
+                child++;
+            }
+            if (moving.estimate <= heap[child].estimate) {
+                break;
+            }
+            place(heap[child], slot);
+            slot = child;
+        }
+        place(moving, slot);
+    }
+
+    private void place(Candidate candidate, int slot) {
+        heap[slot] = candidate;
+        candidate.slot = slot;
+    }
+
+    // Independent-enough row hashes from one String hash: seed per row, then a 64-bit finalizer
+    private static int mix(int hash, int row) {
+        long x = hash ^ (0x9E3779B97F4A7C15L * (row + 1));
+        x = (x ^ (x >>> 33)) * 0xFF51AFD7ED558CCDL;
+        x = (x ^ (x >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return (int) (x ^ (x >>> 33));
+    }
+}
@@ -0,0 +1,244 @@
+package com.example.gros.search;
+
+import com.example.gros.event.ProductChangedEvent;
+import com.example.gros.model.Product;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Column-oriented copy of (id, price, quantity) sorted by price, so price-range and
+// in-stock filters are a binary search plus a loop over primitive arrays.
+// Loaded from the table on the first query, then patched from product change events: a stock
+// change overwrites one quantity, any other change moves one slot. Bulk import drops it
+// instead (invalidate) and the next query reloads it.
+@Component
+public class ProductColumnarView {
+
+    private static final class Columns {
+        int size;
+        int[] ids;
+        long[] priceCents;
+        int[] quantities;
+        // productId -> price in cents; with the id it locates the product's slot by binary search
+        final Map<Integer, Long> prices = new HashMap<>();
+
+        // slot of the product, -1 when it is not in the view
+        int indexOf(int id) {
+            Long cents = prices.get(id);
+            return cents == null ? -1 : lowerBound(priceCents, ids, size, cents, id);
+        }
+
+        void remove(int id) {
+            int i = indexOf(id);
+            if (i < 0) {
+                return;
+            }
+            int tail = size - i - 1;
+            System.arraycopy(ids, i + 1, ids, i, tail);
+            System.arraycopy(priceCents, i + 1, priceCents, i, tail);
+            System.arraycopy(quantities, i + 1, quantities, i, tail);
+            size--;
+            prices.remove(id);
+        }
+
+        void insert(int id, long cents, int quantity) {
+            if (size == ids.length) {
+                int capacity = Math.max(16, size * 2);
+                ids = Arrays.copyOf(ids, capacity);
+                priceCents = Arrays.copyOf(priceCents, capacity);
+                quantities = Arrays.copyOf(quantities, capacity);
+            }
+            int i = lowerBound(priceCents, ids, size, cents, id);
+            int tail = size - i;
+            System.arraycopy(ids, i, ids, i + 1, tail);
+            System.arraycopy(priceCents, i, priceCents, i + 1, tail);
+            System.arraycopy(quantities, i, quantities, i + 1, tail);
+            ids[i] = id;
+            priceCents[i] = cents;
+            quantities[i] = quantity;
+            size++;
+            prices.put(id, cents);
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // null until the first query, and again after invalidate()
+    private Columns columns;
+
+    public ProductColumnarView(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            Columns c = columns;
+            if (c == null) {
+                // loaded afresh by the next query
+                return;
+            }
+            Product product = event.getProduct();
+            if (event.getType() == ProductChangedEvent.Type.STOCK_CHANGED) {
+                int i = c.indexOf(event.getProductId());
+                if (i >= 0 && c.priceCents[i] == toCents(product.getPrice())) {
+                    c.quantities[i] = product.getQuantity();
+                    return;
+                }
+            }
+            // remove-then-insert, so an event for a row the last load already saw is harmless
+            c.remove(event.getProductId());
+            if (event.getType() != ProductChangedEvent.Type.DELETED && !product.isDiscontinued()) {
+                c.insert(product.getProductId(), toCents(product.getPrice()), product.getQuantity());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Drops the view so the next query reloads it: cheaper than patching row by row after a bulk import
+    public void invalidate() {
+        lock.writeLock().lock();
+        try {
+            columns = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public static long toCents(BigDecimal amount) {
+        return amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    // Ids of products priced within [minCents, maxCents], optionally only those in stock.
+    // Sort is "price" (ascending), "-price" (descending) or "id".
+    public int[] filter(long minCents, long maxCents, boolean inStockOnly, String sort, int limit) {
+        lock.readLock().lock();
+        try {
+            Columns c = columns;
+            if (c == null) {
+                lock.readLock().unlock();
+                lock.writeLock().lock();
+                try {
+                    if (columns == null) {
+                        columns = load();
+                    }
+                    c = columns;
+                    // downgrade: keep readers out of nothing but the load
+                    lock.readLock().lock();
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+            return filter(c, minCents, maxCents, inStockOnly, sort, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Caller holds the read lock
+    private static int[] filter(Columns c, long minCents, long maxCents, boolean inStockOnly, String sort, int limit) {
+        int from = lowerBound(c.priceCents, c.size, minCents);
+        int to = lowerBound(c.priceCents, c.size, maxCents == Long.MAX_VALUE ? maxCents : maxCents + 1);
+        boolean descending = "-price".equals(sort);
+        boolean byId = "id".equals(sort);
+        int cap = byId ? to - from : Math.min(limit, to - from);
+        int[] out = new int[Math.max(cap, 0)];
+        int n = 0;
+        if (descending) {
+            for (int i = to - 1; i >= from && n < cap; i--) {
+                if (!inStockOnly || c.quantities[i] > 0) {
+                    out[n++] = c.ids[i];
+                }
+            }
+        } else {
+            for (int i = from; i < to && n < cap; i++) {
+                if (!inStockOnly || c.quantities[i] > 0) {
+                    out[n++] = c.ids[i];
+                }
+            }
+        }
+        if (byId) {
+            Arrays.sort(out, 0, n);
+            n = Math.min(n, limit);
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    private Columns load() {
+        ColumnsBuilder builder = new ColumnsBuilder();
+        jdbcTemplate.query("SELECT product_id, price, quantity FROM product WHERE discontinued = FALSE ORDER BY price, product_id", builder);
+        Columns c = new Columns();
+        c.size = builder.size;
+        c.ids = builder.ids;
+        c.priceCents = builder.priceCents;
+        c.quantities = builder.quantities;
+        for (int i = 0; i < c.size; i++) {
+            c.prices.put(c.ids[i], c.priceCents[i]);
+        }
+        return c;
+    }
+
+    // Fills the primitive arrays straight from the result set, growing them as needed
+    private static final class ColumnsBuilder implements RowCallbackHandler {
+        int size;
+        int[] ids = new int[1024];
+        long[] priceCents = new long[1024];
+        int[] quantities = new int[1024];
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                priceCents = Arrays.copyOf(priceCents, size * 2);
+                quantities = Arrays.copyOf(quantities, size * 2);
+            }
+            ids[size] = rs.getInt(1);
+            priceCents[size] = toCents(rs.getBigDecimal(2));
+            quantities[size] = rs.getInt(3);
+            size++;
+        }
+    }
+
+    // first index whose (price, id) is >= (price, id), the view's sort order
+    private static int lowerBound(long[] prices, int[] ids, int size, long price, int id) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (prices[mid] < price || (prices[mid] == price && ids[mid] < id)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    // first index whose price is >= key
+    private static int lowerBound(long[] values, int size, long key) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (values[mid] < key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,297 @@
+package com.example.gros.search;
+
+import com.example.gros.event.ProductChangedEvent;
+import com.example.gros.model.Product;
+import com.example.gros.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// In-memory inverted index over product name and description, ranked with BM25.
+// Loaded once at startup and kept current from ProductChangedEvents after each commit.
+@Component
+public class ProductSearchIndex {
+    private static final Logger logger = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+    // BM25 parameters and per-field boosts
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final double NAME_BOOST = 2.0;
+    private static final double DESCRIPTION_BOOST = 1.0;
+    // a query term that only matches as a prefix or a typo counts for less than an exact hit
+    private static final double PREFIX_WEIGHT = 0.7;
+    private static final double FUZZY_WEIGHT = 0.5;
+
+    // Postings (term -> product id -> term frequency) plus the length statistics BM25 needs.
+    // terms holds surface tokens, matched exactly or by prefix; analyzed holds their stemmed and
+    // synonym-mapped forms, matched exactly and only for whole query words.
+    private static final class Field {
+        final double boost;
+        final NavigableMap<String, Map<Integer, Integer>> terms = new TreeMap<>();
+        final Map<String, Map<Integer, Integer>> analyzed = new HashMap<>();
+        final Map<Integer, Integer> lengths = new HashMap<>();
+        long totalLength;
+
+        Field(double boost) {
+            this.boost = boost;
+        }
+
+        void clear() {
+            terms.clear();
+            analyzed.clear();
+            lengths.clear();
+            totalLength = 0;
+        }
+
+        // returns true if the surface token was new to this field
+        boolean add(Integer id, String token, String term) {
+            boolean created = !terms.containsKey(token);
+            terms.computeIfAbsent(token, t -> new HashMap<>()).merge(id, 1, Integer::sum);
+            analyzed.computeIfAbsent(term, t -> new HashMap<>()).merge(id, 1, Integer::sum);
+            return created;
+        }
+
+        void addDocument(Integer id, List<String> tokens) {
+            lengths.put(id, tokens.size());
+            totalLength += tokens.size();
+        }
+
+        void removeDocument(Integer id, List<String> tokens, List<String> analyzedTerms) {
+            Integer length = lengths.remove(id);
+            if (length != null) {
+                totalLength -= length;
+            }
+            remove(terms, id, tokens);
+            remove(analyzed, id, analyzedTerms);
+        }
+
+        private static void remove(Map<String, Map<Integer, Integer>> index, Integer id, List<String> keys) {
+            for (String key : keys) {
+                Map<Integer, Integer> postings = index.get(key);
+                if (postings != null && postings.remove(id) != null && postings.isEmpty()) {
+                    index.remove(key);
+                }
+            }
+        }
+
+        double averageLength() {
+            return lengths.isEmpty() ? 1.0 : Math.max(1.0, (double) totalLength / lengths.size());
+        }
+    }
+
+    private final ProductRepository productRepository;
+    private final TextAnalyzer analyzer;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, Product> documents = new HashMap<>();
+    private final Field name = new Field(NAME_BOOST);
+    private final Field description = new Field(DESCRIPTION_BOOST);
+    private final BkTree nameTermTree = new BkTree();
+    private volatile boolean ready;
+
+    public ProductSearchIndex(ProductRepository productRepository, TextAnalyzer analyzer) {
+        this.productRepository = productRepository;
+        this.analyzer = analyzer;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<Product> products = productRepository.findByDiscontinuedFalse();
+        lock.writeLock().lock();
+        try {
+            documents.clear();
+            name.clear();
+            description.clear();
+            nameTermTree.clear();
+            for (Product product : products) {
+                addDocument(product);
+            }
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Product search index built with {} products and {} name terms", products.size(), name.terms.size());
+    }
+
+    // right after CatalogVersion, ahead of the result cache that reloads from this index
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (event.getType() == ProductChangedEvent.Type.STOCK_CHANGED) {
+                // text is unchanged, only swap in the entity with the new quantity
+                documents.replace(event.getProductId(), event.getProduct());
+                return;
+            }
+            removeDocument(event.getProductId());
+            if (event.getType() != ProductChangedEvent.Type.DELETED) {
+                addDocument(event.getProduct());
+            }
+            // terms dropped from the name index stay in the tree until they outnumber live ones
+            if (nameTermTree.size() > 2 * name.terms.size() + 1024) {
+                nameTermTree.clear();
+                name.terms.keySet().forEach(nameTermTree::add);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // Every query word must match (exactly or as a prefix) a word of the product. A complete query
+    // word also matches through its stem or synonym ("curd" finds yogurt); the last word, which may
+    // still be being typed, only does when it is a prefix of nothing in the index, so "pop" keeps
+    // meaning popcorn rather than soda. With fuzzy set, a query word may also match name words
+    // within a small edit distance. Matches are ranked by BM25 and at most limit of them are
+    // returned (all of them when limit <= 0).
+    public List<Product> search(String query, boolean nameOnly, boolean fuzzy, int limit) {
+        TextAnalyzer.Query parsed = analyzer.parseQuery(query);
+        if (parsed.tokens().isEmpty()) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            Map<Integer, Double> scores = null;
+            for (String token : parsed.tokens()) {
+                Map<Integer, Double> termScores = new HashMap<>();
+                scoreField(name, token, fuzzy, termScores);
+                if (!nameOnly) {
+                    scoreField(description, token, false, termScores);
+                }
+                if (parsed.isComplete(token) || termScores.isEmpty()) {
+                    String term = analyzer.term(token);
+                    Map<Integer, Double> exact = new HashMap<>();
+                    scoreAnalyzed(name, term, exact);
+                    if (!nameOnly) {
+                        scoreAnalyzed(description, term, exact);
+                    }
+                    // a word that matches both ways counts once, at its better score
+                    exact.forEach((id, score) -> termScores.merge(id, score, Math::max));
+                }
+                if (scores == null) {
+                    scores = termScores;
+                } else {
+                    scores.keySet().retainAll(termScores.keySet());
+                    scores.replaceAll((id, score) -> score + termScores.get(id));
+                }
+                if (scores.isEmpty()) {
+                    return List.of();
+                }
+            }
+            return topHits(scores, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Product> topHits(Map<Integer, Double> scores, int limit) {
+        Comparator<Map.Entry<Integer, Double>> ranking = Map.Entry.<Integer, Double>comparingByValue()
+                .reversed()
+                .thenComparing(Map.Entry.comparingByKey());
+        int size = limit > 0 ? Math.min(limit, scores.size()) : scores.size();
+        // min-heap on rank keeps only the best `size` hits
+        PriorityQueue<Map.Entry<Integer, Double>> heap = new PriorityQueue<>(size + 1, ranking.reversed());
+        for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+            heap.offer(entry);
+            if (heap.size() > size) {
+                heap.poll();
+            }
+        }
+        List<Map.Entry<Integer, Double>> ranked = new ArrayList<>(heap);
+        ranked.sort(ranking);
+        List<Product> results = new ArrayList<>(ranked.size());
+        for (Map.Entry<Integer, Double> entry : ranked) {
+            results.add(documents.get(entry.getKey()));
+        }
+        return results;
+    }
+
+    private void scoreField(Field field, String queryTerm, boolean fuzzy, Map<Integer, Double> into) {
+        NavigableMap<String, Map<Integer, Integer>> prefixed =
+                field.terms.subMap(queryTerm, true, queryTerm + Character.MAX_VALUE, false);
+        for (Map.Entry<String, Map<Integer, Integer>> entry : prefixed.entrySet()) {
+            double weight = entry.getKey().equals(queryTerm) ? 1.0 : PREFIX_WEIGHT;
+            scoreTerm(field, entry.getValue(), weight, into);
+        }
+        if (!fuzzy) {
+            return;
+        }
+        int maxDistance = queryTerm.length() <= 3 ? 0 : queryTerm.length() <= 6 ? 1 : 2;
+        if (maxDistance == 0) {
+            return;
+        }
+        for (String match : nameTermTree.search(queryTerm, maxDistance)) {
+            Map<Integer, Integer> postings = field.terms.get(match);
+            if (postings != null && !match.startsWith(queryTerm)) {
+                scoreTerm(field, postings, FUZZY_WEIGHT, into);
+            }
+        }
+    }
+
+    private void scoreAnalyzed(Field field, String term, Map<Integer, Double> into) {
+        Map<Integer, Integer> postings = field.analyzed.get(term);
+        if (postings != null) {
+            scoreTerm(field, postings, 1.0, into);
+        }
+    }
+
+    private void scoreTerm(Field field, Map<Integer, Integer> postings, double weight, Map<Integer, Double> into) {
+        int docCount = documents.size();
+        int docFrequency = postings.size();
+        double idf = Math.log(1 + (docCount - docFrequency + 0.5) / (docFrequency + 0.5));
+        double averageLength = field.averageLength();
+        for (Map.Entry<Integer, Integer> posting : postings.entrySet()) {
+            int tf = posting.getValue();
+            int length = field.lengths.getOrDefault(posting.getKey(), 0);
+            double norm = tf * (K1 + 1) / (tf + K1 * (1 - B + B * length / averageLength));
+            into.merge(posting.getKey(), field.boost * weight * idf * norm, Double::sum);
+        }
+    }
+
+    private void addDocument(Product product) {
+        Integer id = product.getProductId();
+        documents.put(id, product);
+        List<String> nameTokens = analyzer.tokenize(product.getProductName());
+        name.addDocument(id, nameTokens);
+        for (String token : nameTokens) {
+            if (name.add(id, token, analyzer.term(token))) {
+                nameTermTree.add(token);
+            }
+        }
+        List<String> descriptionTokens = analyzer.tokenize(product.getProductDescription());
+        description.addDocument(id, descriptionTokens);
+        for (String token : descriptionTokens) {
+            description.add(id, token, analyzer.term(token));
+        }
+    }
+
+    private void removeDocument(Integer id) {
+        Product previous = documents.remove(id);
+        if (previous == null) {
+            return;
+        }
+        name.removeDocument(id, analyzer.tokenize(previous.getProductName()), analyzer.analyze(previous.getProductName()));
+        description.removeDocument(id, analyzer.tokenize(previous.getProductDescription()),
+                analyzer.analyze(previous.getProductDescription()));
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.gros.search;
+
+import com.example.gros.dto.ProductSuggestion;
+import com.example.gros.event.ProductChangedEvent;
+import com.example.gros.model.Product;
+import com.example.gros.repository.ProductRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Autocomplete over product names. Each name is inserted once per word start,
+// so "app" suggests "Fresh Apples" as well as names beginning with "app".
+// Suggestions are ranked before the limit applies: names that start with the prefix come before
+// names where it starts a later word, and shorter names (closer to what was typed) come first.
+@Component
+public class ProductSuggestIndex {
+    private final ProductRepository productRepository;
+    private final TextAnalyzer analyzer;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final RadixTrie trie = new RadixTrie();
+    private final Map<Integer, String> names = new HashMap<>();
+
+    public ProductSuggestIndex(ProductRepository productRepository, TextAnalyzer analyzer) {
+        this.productRepository = productRepository;
+        this.analyzer = analyzer;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<Product> products = productRepository.findByDiscontinuedFalse();
+        lock.writeLock().lock();
+        try {
+            trie.clear();
+            names.clear();
+            for (Product product : products) {
+                add(product.getProductId(), product.getProductName());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.getType() == ProductChangedEvent.Type.STOCK_CHANGED) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            String previous = names.remove(event.getProductId());
+            if (previous != null) {
+                for (String key : keys(previous)) {
+                    trie.remove(key, event.getProductId());
+                }
+            }
+            if (event.getType() != ProductChangedEvent.Type.DELETED) {
+                add(event.getProductId(), event.getProduct().getProductName());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<ProductSuggestion> suggest(String prefix, int limit) {
+        String key = String.join(" ", analyzer.tokenize(prefix));
+        if (key.isEmpty()) {
+            return List.of();
+        }
+        // keep a trailing space so "whole " only suggests names with a following word
+        if (Character.isWhitespace(prefix.charAt(prefix.length() - 1))) {
+            key = key + " ";
+        }
+        lock.readLock().lock();
+        try {
+            List<ProductSuggestion> suggestions = new ArrayList<>();
+            for (Integer id : trie.findByPrefix(key, limit)) {
+                suggestions.add(new ProductSuggestion(id, names.get(id)));
+            }
+            return suggestions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void add(Integer id, String name) {
+        names.put(id, name);
+        List<String> keys = keys(name);
+        for (int position = 0; position < keys.size(); position++) {
+            trie.insert(keys.get(position), id, rank(position, name));
+        }
+    }
+
+    // Word position first, then name length; the trie breaks remaining ties by id
+    private static long rank(int position, String name) {
+        return ((long) position << 32) | name.length();
+    }
+
+    // Surface words only: a typed prefix must never be stemmed or mapped to a synonym
+    private List<String> keys(String name) {
+        List<String> words = analyzer.tokenize(name);
+        List<String> keys = new ArrayList<>(words.size());
+        for (int i = 0; i < words.size(); i++) {
+            keys.add(String.join(" ", words.subList(i, words.size())));
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,246 @@
+package com.example.gros.search;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+// Path-compressed trie mapping string keys to int ids. Children are kept in arrays sorted by
+// the first character of their edge label, so lookups are a binary search per node.
+// Each id is stored with a rank (lower is better) and every node keeps the best rank below it,
+// so prefix lookups walk best-first and stop once they have enough ids.
+// Not thread-safe; callers guard it.
+public class RadixTrie {
+    private static final int[] NO_IDS = new int[0];
+    private static final long[] NO_RANKS = new long[0];
+
+    // Either a node still to expand or an id ready to return, ordered by rank then id
+    private record Candidate(long rank, int id, Node node) {}
+
+    private static final Comparator<Candidate> BEST_FIRST =
+            Comparator.comparingLong(Candidate::rank).thenComparingInt(Candidate::id);
+
+    private static final class Node {
+        char[] firsts = new char[0];
+        String[] labels = new String[0];
+        Node[] children = new Node[0];
+        int[] ids = NO_IDS;
+        long[] ranks = NO_RANKS;
+        long best = Long.MAX_VALUE;
+
+        int find(char c) {
+            return Arrays.binarySearch(firsts, c);
+        }
+
+        void insertChild(int pos, String label, Node child) {
+            int n = firsts.length;
+            char[] f = new char[n + 1];
+            String[] l = new String[n + 1];
+            Node[] c = new Node[n + 1];
+            System.arraycopy(firsts, 0, f, 0, pos);
+            System.arraycopy(labels, 0, l, 0, pos);
+            System.arraycopy(children, 0, c, 0, pos);
+            f[pos] = label.charAt(0);
+            l[pos] = label;
+            c[pos] = child;
+            System.arraycopy(firsts, pos, f, pos + 1, n - pos);
+            System.arraycopy(labels, pos, l, pos + 1, n - pos);
+            System.arraycopy(children, pos, c, pos + 1, n - pos);
+            firsts = f;
+            labels = l;
+            children = c;
+        }
+
+        void removeChild(int pos) {
+            int n = firsts.length;
+            char[] f = new char[n - 1];
+            String[] l = new String[n - 1];
+            Node[] c = new Node[n - 1];
+            System.arraycopy(firsts, 0, f, 0, pos);
+            System.arraycopy(labels, 0, l, 0, pos);
+            System.arraycopy(children, 0, c, 0, pos);
+            System.arraycopy(firsts, pos + 1, f, pos, n - pos - 1);
+            System.arraycopy(labels, pos + 1, l, pos, n - pos - 1);
+            System.arraycopy(children, pos + 1, c, pos, n - pos - 1);
+            firsts = f;
+            labels = l;
+            children = c;
+        }
+
+        void addId(int id, long rank) {
+            for (int i = 0; i < ids.length; i++) {
+                if (ids[i] == id) {
+                    ranks[i] = rank;
+                    refreshBest();
+                    return;
+                }
+            }
+            ids = Arrays.copyOf(ids, ids.length + 1);
+            ranks = Arrays.copyOf(ranks, ranks.length + 1);
+            ids[ids.length - 1] = id;
+            ranks[ranks.length - 1] = rank;
+            best = Math.min(best, rank);
+        }
+
+        void removeId(int id) {
+            for (int i = 0; i < ids.length; i++) {
+                if (ids[i] == id) {
+                    int[] copy = new int[ids.length - 1];
+                    long[] rankCopy = new long[ranks.length - 1];
+                    System.arraycopy(ids, 0, copy, 0, i);
+                    System.arraycopy(ids, i + 1, copy, i, ids.length - i - 1);
+                    System.arraycopy(ranks, 0, rankCopy, 0, i);
+                    System.arraycopy(ranks, i + 1, rankCopy, i, ranks.length - i - 1);
+                    ids = copy;
+                    ranks = rankCopy;
+                    return;
+                }
+            }
+        }
+
+        void refreshBest() {
+            long min = Long.MAX_VALUE;
+            for (long rank : ranks) {
+                min = Math.min(min, rank);
+            }
+            for (Node child : children) {
+                min = Math.min(min, child.best);
+            }
+            best = min;
+        }
+    }
+
+    private Node root = new Node();
+
+    public void clear() {
+        root = new Node();
+    }
+
+    // Inserting an id already stored under key replaces its rank
+    public void insert(String key, int id, long rank) {
+        insert(root, key, 0, id, rank);
+    }
+
+    public void remove(String key, int id) {
+        remove(root, key, 0, id);
+    }
+
+    // Returns up to limit distinct ids whose key starts with prefix, best rank first (ties by id).
+    // An id stored under several matching keys counts once, at its best rank.
+    public Set<Integer> findByPrefix(String prefix, int limit) {
+        Set<Integer> results = new LinkedHashSet<>();
+        Node node = root;
+        int i = 0;
+        while (i < prefix.length()) {
+            int idx = node.find(prefix.charAt(i));
+            if (idx < 0) {
+                return results;
+            }
+            String label = node.labels[idx];
+            int common = commonPrefix(label, prefix, i);
+            if (i + common == prefix.length()) {
+                node = node.children[idx];
+                break;
+            }
+            if (common < label.length()) {
+                return results;
+            }
+            node = node.children[idx];
+            i += common;
+        }
+        collect(node, results, limit);
+        return results;
+    }
+
+    private void insert(Node node, String key, int i, int id, long rank) {
+        if (i == key.length()) {
+            node.addId(id, rank);
+            return;
+        }
+        int idx = node.find(key.charAt(i));
+        if (idx < 0) {
+            Node leaf = new Node();
+            leaf.addId(id, rank);
+            node.insertChild(-(idx + 1), key.substring(i), leaf);
+        } else {
+            String label = node.labels[idx];
+            int common = commonPrefix(label, key, i);
+            if (common < label.length()) {
+                // split the edge at the point where the key diverges
+                Node mid = new Node();
+                mid.insertChild(0, label.substring(common), node.children[idx]);
+                mid.best = node.children[idx].best;
+                node.labels[idx] = label.substring(0, common);
+                node.children[idx] = mid;
+            }
+            insert(node.children[idx], key, i + common, id, rank);
+        }
+        // a re-insert may have raised a rank, so recompute rather than take the minimum
+        node.refreshBest();
+    }
+
+    private boolean remove(Node node, String key, int i, int id) {
+        if (i == key.length()) {
+            node.removeId(id);
+            node.refreshBest();
+            return true;
+        }
+        int idx = node.find(key.charAt(i));
+        if (idx < 0) {
+            return false;
+        }
+        String label = node.labels[idx];
+        if (!key.startsWith(label, i)) {
+            return false;
+        }
+        Node child = node.children[idx];
+        boolean removed = remove(child, key, i + label.length(), id);
+        if (removed && child.ids.length == 0) {
+            if (child.children.length == 0) {
+                node.removeChild(idx);
+            } else if (child.children.length == 1) {
+                // re-compress a pass-through node into its parent edge
+                node.labels[idx] = label + child.labels[0];
+                node.children[idx] = child.children[0];
+            }
+        }
+        if (removed) {
+            node.refreshBest();
+        }
+        return removed;
+    }
+
+    // Best-first over the subtree: a node is expanded only once nothing ranked better is left,
+    // so the walk touches roughly the paths to the returned ids rather than every match
+    private void collect(Node start, Set<Integer> results, int limit) {
+        if (limit <= 0) {
+            return;
+        }
+        PriorityQueue<Candidate> queue = new PriorityQueue<>(BEST_FIRST);
+        queue.add(new Candidate(start.best, -1, start));
+        while (!queue.isEmpty() && results.size() < limit) {
+            Candidate next = queue.poll();
+            if (next.node() == null) {
+                results.add(next.id());
+                continue;
+            }
+            Node node = next.node();
+            for (int j = 0; j < node.ids.length; j++) {
+                queue.add(new Candidate(node.ranks[j], node.ids[j], null));
+            }
+            for (Node child : node.children) {
+                queue.add(new Candidate(child.best, -1, child));
+            }
+        }
+    }
+
+    private static int commonPrefix(String label, String key, int offset) {
+        int max = Math.min(label.length(), key.length() - offset);
+        int n = 0;
+        while (n < max && label.charAt(n) == key.charAt(offset + n)) {
+            n++;
+        }
+        return n;
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.gros.search;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+// What customers search for, kept in memory only: the most frequent normalized queries
+// and the most frequent ones that found nothing. Bounded by the sketch sizes, whatever the traffic.
+@Component
+public class SearchQueryStats {
+    private static final int SKETCH_DEPTH = 4;
+    private static final int SKETCH_WIDTH = 4096;
+    private static final int MAX_QUERY_LENGTH = 100;
+
+    private final TextAnalyzer analyzer;
+    private final HeavyHitters queries;
+    private final HeavyHitters zeroResultQueries;
+
+    public SearchQueryStats(TextAnalyzer analyzer, @Value("${gros.search.top-queries.size:100}") int trackedQueries) {
+        this.analyzer = analyzer;
+        this.queries = new HeavyHitters(trackedQueries, SKETCH_DEPTH, SKETCH_WIDTH);
+        this.zeroResultQueries = new HeavyHitters(trackedQueries, SKETCH_DEPTH, SKETCH_WIDTH);
+    }
+
+    // Counts every search request, including those answered 304 from the client's cache
+    public void record(String query) {
+        String normalized = normalize(query);
+        if (normalized != null) {
+            queries.add(normalized);
+        }
+    }
+
+    // Called once a search has actually run and found nothing
+    public void recordZeroResults(String query) {
+        String normalized = normalize(query);
+        if (normalized != null) {
+            zeroResultQueries.add(normalized);
+        }
+    }
+
+    public Map<String, Object> stats(int limit) {
+        return Map.of(
+            "searches", queries.total(),
+            "zeroResultSearches", zeroResultQueries.total(),
+            "topQueries", queries.top(limit),
+            "topZeroResultQueries", zeroResultQueries.top(limit)
+        );
+    }
+
+    // null when nothing is left to count
+    private String normalize(String query) {
+        String normalized = analyzer.normalize(query);
+        if (normalized.isEmpty()) {
+            return null;
+        }
+        return normalized.length() > MAX_QUERY_LENGTH ? normalized.substring(0, MAX_QUERY_LENGTH) : normalized;
+    }
+}
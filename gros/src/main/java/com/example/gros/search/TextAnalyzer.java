@@ -0,0 +1,214 @@
+package com.example.gros.search;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.UnaryOperator;
+
+// Turns product text and search queries into index terms: split on anything that is not a
+// letter or digit, then run each token through the configured filter chain. The same chain
+// runs at index and query time, so both sides agree on terms.
+//   lowercase - fold case
+//   stem      - light English plural stemming ("apples" -> "apple", "berries" -> "berry")
+//   synonyms  - map every word of a synonym group onto the group's first word ("curd" -> "yogurt")
+// Case folding gives the surface tokens that prefix lookups run on; stemming and synonyms only
+// make sense for whole words, so they give a second, exact-match-only term per token.
+@Component
+public class TextAnalyzer {
+    private static final Logger logger = LoggerFactory.getLogger(TextAnalyzer.class);
+
+    private final List<UnaryOperator<String>> filters = new ArrayList<>();
+    // the lowercase filter alone: what a partially typed word can be matched with
+    private final List<UnaryOperator<String>> surfaceFilters = new ArrayList<>();
+    // every other filter, applied to surface tokens
+    private final List<UnaryOperator<String>> termFilters = new ArrayList<>();
+
+    // A search query as surface tokens: the ones followed by a separator are complete words; the
+    // last one may still be being typed (null when the query ends with a separator)
+    public record Query(Set<String> complete, String partial) {
+        public Set<String> tokens() {
+            Set<String> tokens = new TreeSet<>(complete);
+            if (partial != null) {
+                tokens.add(partial);
+            }
+            return tokens;
+        }
+
+        public boolean isComplete(String token) {
+            return complete.contains(token);
+        }
+
+        // Canonical form for caching: complete words sorted, then the partial word marked with "*"
+        public String key() {
+            String words = String.join(" ", complete);
+            if (partial == null || complete.contains(partial)) {
+                return words;
+            }
+            return words.isEmpty() ? partial + "*" : words + " " + partial + "*";
+        }
+    }
+
+    public TextAnalyzer(@Value("${gros.search.analyzer.filters:lowercase,stem,synonyms}") List<String> filterNames,
+                        @Value("${gros.search.analyzer.synonyms:classpath:synonyms.txt}") Resource synonyms) {
+        for (String filterName : filterNames) {
+            switch (filterName.trim().toLowerCase(Locale.ROOT)) {
+                case "lowercase" -> {
+                    UnaryOperator<String> lowercase = term -> term.toLowerCase(Locale.ROOT);
+                    filters.add(lowercase);
+                    surfaceFilters.add(lowercase);
+                }
+                case "stem" -> {
+                    filters.add(TextAnalyzer::stem);
+                    termFilters.add(TextAnalyzer::stem);
+                }
+                // synonym entries go through the filters before this one, so they match analyzed tokens
+                case "synonyms" -> {
+                    Map<String, String> mapping = loadSynonyms(synonyms, List.copyOf(filters));
+                    UnaryOperator<String> synonym = term -> mapping.getOrDefault(term, term);
+                    filters.add(synonym);
+                    termFilters.add(synonym);
+                }
+                default -> throw new IllegalArgumentException("Unknown analyzer filter: " + filterName + " (use lowercase, stem or synonyms)");
+            }
+        }
+    }
+
+    // Fully analyzed terms: term() of each surface token
+    public List<String> analyze(String text) {
+        List<String> terms = new ArrayList<>();
+        for (String token : tokenize(text)) {
+            terms.add(term(token));
+        }
+        return terms;
+    }
+
+    // Surface tokens: case folded only, so a prefix of the typed word is a prefix of the token
+    public List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        for (String word : words(text)) {
+            tokens.add(filter(word, surfaceFilters));
+        }
+        return tokens;
+    }
+
+    // The exact-match term for a surface token (stemmed, synonym applied)
+    public String term(String token) {
+        return filter(token, termFilters);
+    }
+
+    public Query parseQuery(String query) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty()) {
+            return new Query(Set.of(), null);
+        }
+        boolean endsWithWord = Character.isLetterOrDigit(query.charAt(query.length() - 1));
+        Set<String> complete = new TreeSet<>(endsWithWord ? tokens.subList(0, tokens.size() - 1) : tokens);
+        return new Query(complete, endsWithWord ? tokens.get(tokens.size() - 1) : null);
+    }
+
+    // Canonical form of a query for statistics: distinct surface tokens, sorted, space separated
+    public String normalize(String query) {
+        return String.join(" ", new TreeSet<>(tokenize(query)));
+    }
+
+    private static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return words;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                words.add(text.substring(start, i));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    private static String filter(String term, List<UnaryOperator<String>> chain) {
+        for (UnaryOperator<String> filter : chain) {
+            term = filter.apply(term);
+        }
+        return term;
+    }
+
+    // Minimal plural stemmer: only strips the endings that are almost always a plural "s"
+    static String stem(String term) {
+        int n = term.length();
+        if (n < 3 || term.charAt(n - 1) != 's') {
+            return term;
+        }
+        char beforeS = term.charAt(n - 2);
+        if (beforeS == 'u' || beforeS == 's') {
+            return term;                                    // "asparagus", "grass"
+        }
+        if (beforeS == 'e') {
+            char c = term.charAt(n - 3);
+            if (n > 3 && c == 'i' && term.charAt(n - 4) != 'a' && term.charAt(n - 4) != 'e') {
+                return term.substring(0, n - 3) + "y";      // "berries" -> "berry"
+            }
+            if (c == 'i' || c == 'a' || c == 'o' || c == 'e') {
+                return term;                                // "shoes", "canoes"
+            }
+        }
+        return term.substring(0, n - 1);
+    }
+
+    // One group per line, comma separated, first word canonical ("yogurt, curd, dahi").
+    // "a, b => c" maps a and b onto c. Blank lines and lines starting with # are skipped.
+    private static Map<String, String> loadSynonyms(Resource resource, List<UnaryOperator<String>> chain) {
+        Map<String, String> mapping = new HashMap<>();
+        if (!resource.exists()) {
+            logger.warn("Synonyms file {} not found; search runs without synonyms", resource.getDescription());
+            return mapping;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] sides = line.split("=>", 2);
+                List<String> words = new ArrayList<>();
+                for (String word : sides[0].split(",")) {
+                    if (!word.isBlank()) {
+                        words.add(filter(word.trim(), chain));
+                    }
+                }
+                if (words.isEmpty()) {
+                    continue;
+                }
+                String canonical = sides.length == 2 ? filter(sides[1].trim(), chain) : words.get(0);
+                for (String word : words) {
+                    if (!word.equals(canonical)) {
+                        mapping.put(word, canonical);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read synonyms from " + resource.getDescription(), e);
+        }
+        logger.info("Loaded {} search synonyms from {}", mapping.size(), resource.getDescription());
+        return mapping;
+    }
+}
@@ -1,64 +1,331 @@
 package com.example.gros.service;
 
+import com.example.gros.cache.CartTotals;
 import com.example.gros.dto.CartItemRequest;
+import com.example.gros.dto.CartOperation;
+import com.example.gros.dto.CartItemResponse;
+import com.example.gros.dto.CartView;
 import com.example.gros.model.*;
 import com.example.gros.repository.*;
+import com.example.gros.reservation.StockReservations;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Service
 public class CartService {
+    private static final Logger logger = LoggerFactory.getLogger(CartService.class);
+
     private final CartItemRepository cartItemRepo;
     private final ProductRepository productRepo;
-    //private final UserRepository userRepo;
+    private final UserRepository userRepo;
+    private final CartLineRepository cartLines;
+    private final ProductService productService;
+    // present only with gros.cart.store=write-behind; null means every edit goes straight to cart_item
+    private final WriteBehindCartStore cartStore;
+    private final CartTotals cartTotals;
+    private final StockReservations reservations;
+    private final TransactionTemplate transactionTemplate;
 
-    public CartService(CartItemRepository cartItemRepo, ProductRepository productRepo, UserRepository userRepo) {
+    public CartService(CartItemRepository cartItemRepo, ProductRepository productRepo, UserRepository userRepo,
+                       CartLineRepository cartLines, ProductService productService, ObjectProvider<WriteBehindCartStore> cartStore,
+                       CartTotals cartTotals, StockReservations reservations, PlatformTransactionManager transactionManager) {
         this.cartItemRepo = cartItemRepo;
         this.productRepo = productRepo;
-       // this.userRepo = userRepo;
+        this.userRepo = userRepo;
+        this.cartLines = cartLines;
+        this.productService = productService;
+        this.cartStore = cartStore.getIfAvailable();
+        this.cartTotals = cartTotals;
+        this.reservations = reservations;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // Cart read path: one projection query for the lines, total summed while walking them.
+    // The customer is only looked up when the cart comes back empty.
+    // In write-behind mode the lines come from memory and products from the product cache.
+    // Each line also shows what is available to this customer and how much is still held for it.
+    public CartView getCartView(Integer customerId) {
+        List<CartItemResponse> items = cartStore != null ? storedItems(customerId) : cartItemRepo.findCartView(customerId);
+        if (items.isEmpty() && !userRepo.existsById(customerId)) {
+            throw new IllegalArgumentException("User with customerId " + customerId + " not found");
+        }
+        BigDecimal total = BigDecimal.ZERO;
+        for (CartItemResponse item : items) {
+            total = total.add(item.getTotalPrice());
+            item.setAvailableQuantity(reservations.available(item.getProductId(), item.getAvailableQuantity(), customerId));
+            item.setReservedQuantity(reservations.held(customerId, item.getProductId()));
+        }
+        return new CartView(items, total);
+    }
+
+    // Item count and total without reading the lines: only the first read of a cart loads them,
+    // after that every edit below adjusts the running sums
+    public CartTotals.Header getCartHeader(Integer customerId) {
+        return cartTotals.header(customerId, () -> getCartView(customerId).getItems());
+    }
+
+    private List<CartItemResponse> storedItems(Integer customerId) {
+        List<CartItemResponse> items = new ArrayList<>();
+        for (Map.Entry<Integer, Integer> line : cartStore.lines(customerId).entrySet()) {
+            // discontinued products drop out here, as they do from the cart query
+            productService.getProductById(line.getKey()).ifPresent(product -> items.add(new CartItemResponse(
+                product.getProductId(), product.getProductName(), line.getValue(), product.getPrice(), product.getImageUrl(),
+                product.getQuantity())));
+        }
+        return items;
     }
 
     public List<CartItem> getCartItems(User user) {
-        return cartItemRepo.findByUser(user);
+        return cartItemRepo.findByUserAndProduct_DiscontinuedFalse(user);
     }
 
-    @Transactional
-    public void addToCart(User user, CartItemRequest request) {
-        System.out.println("CartService: Adding to cart - user: " + user.getCustomerName() + ", productId: " + request.getProductId() + ", quantity: " + request.getQuantity());
-        
-        Product product = productRepo.findById(request.getProductId())
-                .orElseThrow(() -> new IllegalArgumentException("Product not found"));
-        
-        System.out.println("CartService: Product found - " + product.getProductName());
-        
-        CartItem item = cartItemRepo.findByUserAndProduct_ProductId(user, product.getProductId())
-                .orElse(new CartItem());
-        item.setUser(user);
-        item.setProduct(product);
-        item.setQuantity(request.getQuantity());
-        cartItemRepo.save(item);
-        
-        System.out.println("CartService: Cart item saved successfully");
+    // Write-behind edits never touch the database; direct adds are a single statement
+    public void addToCart(Integer customerId, CartItemRequest request) {
+        logger.debug("Adding to cart - customerId: {}, productId: {}, quantity: {}", customerId, request.getProductId(),
+                request.getQuantity());
+        Map<Integer, Integer> line = Map.of(request.getProductId(), request.getQuantity());
+        cartTotals.update(customerId, () -> withHolds(customerId, line, () -> {
+            if (cartStore != null) {
+                productService.getProductById(request.getProductId())
+                        .orElseThrow(() -> new IllegalArgumentException("Product not found"));
+                cartStore.put(customerId, request.getProductId(), request.getQuantity());
+            } else {
+                // one MERGE on (user_id, product_id): no read-then-write race, no duplicate lines
+                int merged;
+                try {
+                    merged = cartLines.upsert(customerId, request.getProductId(), request.getQuantity());
+                } catch (DataIntegrityViolationException e) {
+                    throw new IllegalArgumentException("User with customerId " + customerId + " not found");
+                }
+                if (merged == 0) {
+                    throw new IllegalArgumentException("Product not found");
+                }
+            }
+        }), this::activePrice);
+        logger.debug("Cart item saved for customerId: {}", customerId);
     }
 
-    @Transactional
-    public void updateCartItem(User user, CartItemRequest request) {
-        CartItem item = cartItemRepo.findByUserAndProduct_ProductId(user, request.getProductId())
-                .orElseThrow(() -> new IllegalArgumentException("Item not found in cart"));
-        item.setQuantity(request.getQuantity());
-        cartItemRepo.save(item);
+    public void updateCartItem(Integer customerId, CartItemRequest request) {
+        Map<Integer, Integer> line = Map.of(request.getProductId(), request.getQuantity());
+        cartTotals.update(customerId, () -> withHolds(customerId, line, () -> {
+            if (cartStore != null) {
+                if (!cartStore.update(customerId, request.getProductId(), request.getQuantity())) {
+                    throw new IllegalArgumentException("Item not found in cart");
+                }
+            } else {
+                transactionTemplate.executeWithoutResult(status -> {
+                    CartItem item = cartItemRepo.findByUserAndProduct_ProductId(findUser(customerId), request.getProductId())
+                            .orElseThrow(() -> new IllegalArgumentException("Item not found in cart"));
+                    item.setQuantity(request.getQuantity());
+                    cartItemRepo.save(item);
+                });
+            }
+        }), this::activePrice);
     }
 
-    @Transactional
-    public void removeCartItem(User user, Integer productId) {
-        CartItem item = cartItemRepo.findByUserAndProduct_ProductId(user, productId)
-                .orElseThrow(() -> new IllegalArgumentException("Item not found in cart"));
-        cartItemRepo.delete(item);
+    public void removeCartItem(Integer customerId, Integer productId) {
+        cartTotals.update(customerId, () -> withHolds(customerId, Map.of(productId, 0), () -> {
+            if (cartStore != null) {
+                if (!cartStore.remove(customerId, productId)) {
+                    throw new IllegalArgumentException("Item not found in cart");
+                }
+            } else {
+                transactionTemplate.executeWithoutResult(status -> {
+                    CartItem item = cartItemRepo.findByUserAndProduct_ProductId(findUser(customerId), productId)
+                            .orElseThrow(() -> new IllegalArgumentException("Item not found in cart"));
+                    cartItemRepo.delete(item);
+                });
+            }
+        }), this::activePrice);
+    }
+
+    // Applies the operations in order, all or nothing: one read of the cart, one check of the added
+    // products and one batched write of the lines that changed. Returns the number applied.
+    public int applyBatch(Integer customerId, List<CartOperation> operations) {
+        Set<Integer> added = new LinkedHashSet<>();
+        for (CartOperation operation : operations) {
+            if (operation.getOp() != CartOperation.Type.REMOVE
+                    && (operation.getQuantity() == null || operation.getQuantity() < 1)) {
+                throw new IllegalArgumentException("Quantity must be at least 1 for product " + operation.getProductId());
+            }
+            if (operation.getOp() == CartOperation.Type.ADD) {
+                added.add(operation.getProductId());
+            }
+        }
+        cartTotals.update(customerId, () -> cartStore != null
+                ? applyStoredBatch(customerId, added, operations)
+                : applyDirectBatch(customerId, added, operations), this::activePrice);
+        return operations.size();
+    }
+
+    private Map<Integer, Integer> applyStoredBatch(Integer customerId, Set<Integer> added, List<CartOperation> operations) {
+        for (Integer productId : added) {
+            productService.getProductById(productId)
+                    .orElseThrow(() -> new IllegalArgumentException("Product not found: " + productId));
+        }
+        Map<Integer, Integer> changed = new LinkedHashMap<>();
+        cartStore.edit(customerId, lines -> {
+            applyOperations(lines, operations);
+            changed.putAll(changedLines(lines, operations));
+            // last step, so a refused hold leaves the cart untouched
+            reservations.holdAll(customerId, changed, this::activeProduct);
+        });
+        return changed;
+    }
+
+    private Map<Integer, Integer> applyDirectBatch(Integer customerId, Set<Integer> added, List<CartOperation> operations) {
+        Map<Integer, Integer> previousHolds = new LinkedHashMap<>();
+        try {
+            return transactionTemplate.execute(status -> directBatch(customerId, added, operations, previousHolds));
+        } catch (RuntimeException e) {
+            reservations.restore(customerId, previousHolds);
+            throw e;
+        }
+    }
+
+    private Map<Integer, Integer> directBatch(Integer customerId, Set<Integer> added, List<CartOperation> operations,
+                                              Map<Integer, Integer> previousHolds) {
+        if (!userRepo.existsById(customerId)) {
+            throw new IllegalArgumentException("User with customerId " + customerId + " not found");
+        }
+        if (!added.isEmpty()) {
+            Set<Integer> missing = new LinkedHashSet<>(added);
+            missing.removeAll(productRepo.findActiveIds(added));
+            if (!missing.isEmpty()) {
+                throw new IllegalArgumentException("Product not found: " + missing.iterator().next());
+            }
+        }
+        Map<Integer, Integer> before = cartLines.findLines(customerId);
+        Map<Integer, Integer> after = new LinkedHashMap<>(before);
+        applyOperations(after, operations);
+        Map<Integer, Integer> changed = changedLines(after, operations);
+        previousHolds.putAll(reservations.holdAll(customerId, changed, this::activeProduct));
+        // the check above ran before the write; a product discontinued since is caught here
+        List<Integer> rejected = cartLines.writeChanges(customerId, before, after);
+        if (!rejected.isEmpty()) {
+            throw new IllegalArgumentException("Product not found: " + rejected.get(0));
+        }
+        return changed;
+    }
+
+    // Final quantity of every product the operations touched, 0 for the ones removed
+    private static Map<Integer, Integer> changedLines(Map<Integer, Integer> lines, List<CartOperation> operations) {
+        Map<Integer, Integer> changed = new LinkedHashMap<>();
+        for (CartOperation operation : operations) {
+            changed.put(operation.getProductId(), lines.getOrDefault(operation.getProductId(), 0));
+        }
+        return changed;
+    }
+
+    private static void applyOperations(Map<Integer, Integer> lines, List<CartOperation> operations) {
+        for (CartOperation operation : operations) {
+            Integer productId = operation.getProductId();
+            switch (operation.getOp()) {
+                case ADD -> lines.put(productId, operation.getQuantity());
+                case UPDATE -> {
+                    if (lines.replace(productId, operation.getQuantity()) == null) {
+                        throw new IllegalArgumentException("Item not found in cart: " + productId);
+                    }
+                }
+                case REMOVE -> {
+                    if (lines.remove(productId) == null) {
+                        throw new IllegalArgumentException("Item not found in cart: " + productId);
+                    }
+                }
+            }
+        }
     }
 
     @Transactional
     public void clearCart(User user) {
         cartItemRepo.deleteByUser(user);
+        cleared(user.getCustomerId());
+    }
+
+    // Checkout reads cart_item, so pending write-behind edits are written out first
+    public void prepareCheckout(Integer customerId) {
+        if (cartStore != null) {
+            cartStore.flush(customerId);
+        }
+    }
+
+    // Called once checkout has cleared cart_item for the customer. Its holds go when the order
+    // commits: by then the stock they held has been taken off the products.
+    public void checkedOut(Integer customerId) {
+        cleared(customerId);
+    }
+
+    // The transaction has deleted the customer's cart_item rows: the write-behind cart, running
+    // totals and holds are dropped once it commits, and stay as they were if it rolls back
+    private void cleared(Integer customerId) {
+        if (cartStore != null) {
+            cartStore.clearing(customerId);
+        }
+        afterCompletion(committed -> {
+            if (cartStore != null) {
+                cartStore.cleared(customerId, committed);
+            }
+            if (committed) {
+                cartTotals.invalidate(customerId);
+                reservations.releaseAll(customerId);
+            }
+        });
+    }
+
+    // Runs action with whether the surrounding transaction committed, or now (as committed) outside one
+    private static void afterCompletion(Consumer<Boolean> action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    action.accept(status == STATUS_COMMITTED);
+                }
+            });
+        } else {
+            action.accept(true);
+        }
+    }
+
+    // Takes the stock holds for the new line quantities (0 releases), then runs the cart write,
+    // putting the holds back if it fails. Returns the quantities for the running totals.
+    private Map<Integer, Integer> withHolds(Integer customerId, Map<Integer, Integer> lines, Runnable write) {
+        Map<Integer, Integer> previous = reservations.holdAll(customerId, lines, this::activeProduct);
+        try {
+            write.run();
+        } catch (RuntimeException e) {
+            reservations.restore(customerId, previous);
+            throw e;
+        }
+        return lines;
+    }
+
+    private Product activeProduct(Integer productId) {
+        return productService.getProductById(productId).orElse(null);
+    }
+
+    // Price used for a line's running total; null once the product is no longer sold
+    private BigDecimal activePrice(Integer productId) {
+        return productService.getProductById(productId).map(Product::getPrice).orElse(null);
+    }
+
+    private User findUser(Integer customerId) {
+        return userRepo.findById(customerId)
+                .orElseThrow(() -> new IllegalArgumentException("User with customerId " + customerId + " not found"));
     }
 }
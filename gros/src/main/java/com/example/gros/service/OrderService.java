@@ -1,7 +1,11 @@
 package com.example.gros.service;
 
+import com.example.gros.dto.FieldSelection;
+import com.example.gros.event.ProductChangedEvent;
 import com.example.gros.model.*;
 import com.example.gros.repository.*;
+import com.example.gros.reservation.StockReservations;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -9,6 +13,7 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class OrderService {
@@ -16,16 +21,34 @@ public class OrderService {
     private final OrderRepository orderRepo;
     private final CartItemRepository cartRepo;
     private final ProductRepository productRepo;
-
-    public OrderService(OrderRepository orderRepo, CartItemRepository cartRepo, ProductRepository productRepo) {
+    private final OrderProjectionRepository orderProjections;
+    private final CartService cartService;
+    private final StockReservations reservations;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public OrderService(OrderRepository orderRepo, CartItemRepository cartRepo, ProductRepository productRepo,
+                        OrderProjectionRepository orderProjections, CartService cartService,
+                        StockReservations reservations, ApplicationEventPublisher eventPublisher) {
         this.orderRepo = orderRepo;
         this.cartRepo = cartRepo;
         this.productRepo = productRepo;
+        this.orderProjections = orderProjections;
+        this.cartService = cartService;
+        this.reservations = reservations;
+        this.eventPublisher = eventPublisher;
+    }
+
+    // Writes the customer's pending write-behind cart edits. Callers run it first, before the request
+    // has touched the database: under open-in-view a request keeps the connection of its first query,
+    // and waiting on the flush with one held while the flush needs another can drain the pool.
+    public void prepareCheckout(Integer customerId) {
+        cartService.prepareCheckout(customerId);
     }
 
+    // Expects prepareCheckout to have run
     @Transactional
     public Order placeOrder(User user) {
-        List<CartItem> cartItems = cartRepo.findByUser(user);
+        List<CartItem> cartItems = cartRepo.findByUserAndProduct_DiscontinuedFalse(user);
         if (cartItems.isEmpty()) {
             throw new IllegalArgumentException("Cart is empty");
         }
@@ -40,13 +63,15 @@ public class OrderService {
         for (CartItem cartItem : cartItems) {
             Product product = cartItem.getProduct();
 
-            if (product.getQuantity() < cartItem.getQuantity()) {
+            // stock held for other customers' carts is not ours to sell
+            if (reservations.available(product.getProductId(), product.getQuantity(), user.getCustomerId()) < cartItem.getQuantity()) {
                 throw new IllegalArgumentException("Insufficient stock for: " + product.getProductName());
             }
 
             // Update product stock
             product.setQuantity(product.getQuantity() - cartItem.getQuantity());
             productRepo.save(product);
+            eventPublisher.publishEvent(ProductChangedEvent.stockChanged(product));
 
             // Create order item
             OrderItem orderItem = new OrderItem();
@@ -71,6 +96,7 @@ public class OrderService {
 
         // Clear cart
         cartRepo.deleteByUser(user);
+        cartService.checkedOut(user.getCustomerId());
 
         return savedOrder;
     }
@@ -91,4 +117,25 @@ public class OrderService {
         return orderRepo.findById(orderId)
                 .orElseThrow(() -> new IllegalArgumentException("Order not found with ID: " + orderId));
     }
+
+    // Sparse fieldsets: only the selected order columns (and items, if asked for) are read
+    public FieldSelection orderFields(String fields) {
+        return OrderProjectionRepository.select(fields);
+    }
+
+    public List<Map<String, Object>> getAllOrders(FieldSelection fields) {
+        return orderProjections.find(fields, null, null);
+    }
+
+    public List<Map<String, Object>> getOrdersForUser(Integer customerId, FieldSelection fields) {
+        return orderProjections.find(fields, customerId, null);
+    }
+
+    public Map<String, Object> getOrderById(Integer orderId, FieldSelection fields) {
+        List<Map<String, Object>> orders = orderProjections.find(fields, null, orderId);
+        if (orders.isEmpty()) {
+            throw new IllegalArgumentException("Order not found with ID: " + orderId);
+        }
+        return orders.get(0);
+    }
 }
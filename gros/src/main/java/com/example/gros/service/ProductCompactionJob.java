@@ -0,0 +1,52 @@
+package com.example.gros.service;
+
+import com.example.gros.repository.CartItemRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Background clean-up for discontinued products: purges the cart lines that still point at
+// them, a bounded batch per transaction, so admin deletes never wait on it.
+@Component
+public class ProductCompactionJob {
+    private static final Logger logger = LoggerFactory.getLogger(ProductCompactionJob.class);
+
+    private final CartItemRepository cartItemRepository;
+    private final int batchSize;
+    private final AtomicLong cartItemsPurged = new AtomicLong();
+    private volatile LocalDateTime lastRun;
+
+    public ProductCompactionJob(CartItemRepository cartItemRepository,
+                                @Value("${gros.compaction.batch-size:500}") int batchSize) {
+        this.cartItemRepository = cartItemRepository;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    @Scheduled(fixedDelayString = "${gros.compaction.interval-ms:60000}", initialDelayString = "${gros.compaction.interval-ms:60000}")
+    public void compact() {
+        long purged = 0;
+        int deleted;
+        do {
+            deleted = cartItemRepository.deleteDiscontinuedBatch(batchSize);
+            purged += deleted;
+        } while (deleted == batchSize);
+        lastRun = LocalDateTime.now();
+        if (purged > 0) {
+            cartItemsPurged.addAndGet(purged);
+            logger.info("Compaction purged {} cart items of discontinued products", purged);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        return Map.of(
+            "cartItemsPurged", cartItemsPurged.get(),
+            "lastRun", lastRun == null ? "never" : lastRun.toString()
+        );
+    }
+}
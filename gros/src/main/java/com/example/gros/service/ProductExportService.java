@@ -0,0 +1,111 @@
+package com.example.gros.service;
+
+import com.example.gros.model.Product;
+import com.example.gros.repository.ProductRepository;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Stream;
+
+// Writes the catalog straight from a forward-only cursor, detaching each entity once it is
+// written so the persistence context (and the heap) stays flat however big the catalog is.
+@Service
+public class ProductExportService {
+    private static final String CSV_HEADER = "productId,productName,price,quantity,productDescription,imageUrl";
+
+    private final ProductRepository productRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTx;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public ProductExportService(ProductRepository productRepository, ObjectMapper objectMapper,
+                                PlatformTransactionManager transactionManager) {
+        this.productRepository = productRepository;
+        this.objectMapper = objectMapper;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+    }
+
+    public void exportNdjson(OutputStream out) {
+        readOnlyTx.executeWithoutResult(status -> {
+            try (Stream<Product> products = productRepository.streamByDiscontinuedFalseOrderByProductIdAsc();
+                 JsonGenerator json = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+                json.setRootValueSeparator(null);
+                products.forEach(product -> {
+                    try {
+                        json.writeStartObject();
+                        json.writeNumberField("productId", product.getProductId());
+                        json.writeStringField("productName", product.getProductName());
+                        json.writeNumberField("price", product.getPrice());
+                        json.writeNumberField("quantity", product.getQuantity());
+                        json.writeStringField("productDescription", product.getProductDescription());
+                        json.writeStringField("imageUrl", product.getImageUrl());
+                        json.writeEndObject();
+                        json.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    entityManager.detach(product);
+                });
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    public void exportCsv(OutputStream out) {
+        readOnlyTx.executeWithoutResult(status -> {
+            try (Stream<Product> products = productRepository.streamByDiscontinuedFalseOrderByProductIdAsc();
+                 Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+                writer.write(CSV_HEADER);
+                writer.write('\n');
+                products.forEach(product -> {
+                    try {
+                        writer.write(String.valueOf(product.getProductId()));
+                        writer.write(',');
+                        writer.write(csv(product.getProductName()));
+                        writer.write(',');
+                        writer.write(product.getPrice().toPlainString());
+                        writer.write(',');
+                        writer.write(String.valueOf(product.getQuantity()));
+                        writer.write(',');
+                        writer.write(csv(product.getProductDescription()));
+                        writer.write(',');
+                        writer.write(csv(product.getImageUrl()));
+                        writer.write('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    entityManager.detach(product);
+                });
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
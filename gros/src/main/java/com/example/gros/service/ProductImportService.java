@@ -0,0 +1,261 @@
+package com.example.gros.service;
+
+import com.example.gros.dto.ProductImportResult;
+import com.example.gros.event.ProductChangedEvent;
+import com.example.gros.model.Product;
+import com.example.gros.search.ProductColumnarView;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Streams a CSV or NDJSON product feed line by line, validating each row and inserting
+// valid ones in JDBC batches (one transaction per batch). Memory use is bounded by the batch size.
+@Service
+public class ProductImportService {
+    private static final Logger logger = LoggerFactory.getLogger(ProductImportService.class);
+    private static final String INSERT_SQL =
+            "INSERT INTO product (product_name, price, quantity, product_description, image_url, reserved) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final ObjectReader productReader;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ProductColumnarView columnarView;
+    private final int batchSize;
+
+    private record Row(long line, Product product) {}
+
+    public ProductImportService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager, Validator validator,
+                                ObjectMapper objectMapper, ApplicationEventPublisher eventPublisher, ProductColumnarView columnarView,
+                                @Value("${gros.import.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.validator = validator;
+        this.productReader = objectMapper.readerFor(Product.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.eventPublisher = eventPublisher;
+        this.columnarView = columnarView;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    public ProductImportResult importCsv(InputStream in) throws IOException {
+        ProductImportResult result = new ProductImportResult();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String headerLine = reader.readLine();
+        if (headerLine == null) {
+            return result;
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        List<String> header = parseCsvLine(stripBom(headerLine));
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        if (!columns.containsKey("productname") || !columns.containsKey("price") || !columns.containsKey("quantity")) {
+            throw new IllegalArgumentException("CSV header must contain productName, price and quantity columns");
+        }
+        List<Row> batch = new ArrayList<>(batchSize);
+        String line;
+        long lineNumber = 1;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                List<String> fields = parseCsvLine(line);
+                Product product = new Product();
+                product.setProductName(field(fields, columns, "productname"));
+                String price = field(fields, columns, "price");
+                product.setPrice(price == null ? null : new BigDecimal(price));
+                String quantity = field(fields, columns, "quantity");
+                product.setQuantity(quantity == null ? null : Integer.valueOf(quantity));
+                product.setProductDescription(field(fields, columns, "productdescription"));
+                product.setImageUrl(field(fields, columns, "imageurl"));
+                accept(product, lineNumber, batch, result);
+            } catch (NumberFormatException e) {
+                result.addError(lineNumber, "Invalid number: " + e.getMessage());
+            } catch (IllegalArgumentException e) {
+                result.addError(lineNumber, e.getMessage());
+            }
+        }
+        flush(batch, result);
+        return result;
+    }
+
+    public ProductImportResult importNdjson(InputStream in) throws IOException {
+        ProductImportResult result = new ProductImportResult();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        List<Row> batch = new ArrayList<>(batchSize);
+        String line;
+        long lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            Product product;
+            try {
+                product = productReader.readValue(line);
+            } catch (JsonProcessingException e) {
+                result.addError(lineNumber, "Malformed JSON: " + e.getOriginalMessage());
+                continue;
+            }
+            product.setProductId(null);
+            product.setCustomer(null);
+            accept(product, lineNumber, batch, result);
+        }
+        flush(batch, result);
+        return result;
+    }
+
+    private void accept(Product product, long lineNumber, List<Row> batch, ProductImportResult result) {
+        Set<ConstraintViolation<Product>> violations = validator.validate(product);
+        if (!violations.isEmpty()) {
+            result.addError(lineNumber, violations.stream()
+                    .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", ")));
+            return;
+        }
+        if (product.getReserved() == null) {
+            product.setReserved("NO");
+        }
+        batch.add(new Row(lineNumber, product));
+        if (batch.size() >= batchSize) {
+            flush(batch, result);
+        }
+    }
+
+    private void flush(List<Row> batch, ProductImportResult result) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> insertBatch(batch));
+            result.addImported(batch.size());
+            logger.info("Imported batch of {} products", batch.size());
+        } catch (DataAccessException e) {
+            logger.error("Product import batch failed", e);
+            String message = "Database error, batch rolled back: " + e.getMostSpecificCause().getMessage();
+            for (Row row : batch) {
+                result.addError(row.line(), message);
+            }
+        }
+        batch.clear();
+    }
+
+    private void insertBatch(List<Row> batch) {
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_SQL, new String[] { "product_id" }),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Product product = batch.get(i).product();
+                        ps.setString(1, product.getProductName());
+                        ps.setBigDecimal(2, product.getPrice());
+                        ps.setInt(3, product.getQuantity());
+                        ps.setString(4, product.getProductDescription());
+                        if (product.getImageUrl() == null) {
+                            ps.setNull(5, Types.VARCHAR);
+                        } else {
+                            ps.setString(5, product.getImageUrl());
+                        }
+                        ps.setString(6, product.getReserved());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return batch.size();
+                    }
+                }, keys);
+        List<Map<String, Object>> generated = keys.getKeyList();
+        // one reload on the next filter beats patching the price-sorted view row by row
+        columnarView.invalidate();
+        for (int i = 0; i < batch.size() && i < generated.size(); i++) {
+            Product product = batch.get(i).product();
+            product.setProductId(((Number) generated.get(i).values().iterator().next()).intValue());
+            // in-memory indexes pick the new rows up once this batch commits
+            eventPublisher.publishEvent(ProductChangedEvent.created(product));
+        }
+    }
+
+    private static String field(List<String> fields, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static String stripBom(String line) {
+        return !line.isEmpty() && line.charAt(0) == '\uFEFF' ? line.substring(1) : line;
+    }
+
+    // RFC 4180 style fields on a single line: commas separate, double quotes wrap, "" escapes a quote
+    static List<String> parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        current.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(current.toString());
+        return fields;
+    }
+}
@@ -1,40 +1,231 @@
 package com.example.gros.service;
 
+import com.example.gros.cache.ProductCache;
+import com.example.gros.cache.SearchResultCache;
+import com.example.gros.cache.SingleFlight;
+import com.example.gros.dto.FieldSelection;
+import com.example.gros.dto.ProductDeletionResult;
+import com.example.gros.dto.ProductPage;
+import com.example.gros.dto.ProductSuggestion;
+import com.example.gros.event.ProductChangedEvent;
 import com.example.gros.model.Product;
-import com.example.gros.model.CartItem;
-import com.example.gros.model.OrderItem;
+import com.example.gros.repository.ProductProjectionRepository;
 import com.example.gros.repository.ProductRepository;
-import com.example.gros.repository.CartItemRepository;
-import com.example.gros.repository.OrderItemRepository;
+import com.example.gros.search.ProductColumnarView;
+import com.example.gros.search.ProductSearchIndex;
+import com.example.gros.search.ProductSuggestIndex;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
 public class ProductService {
     private static final Logger logger = LoggerFactory.getLogger(ProductService.class);
+    private static final int MAX_SUGGESTIONS = 50;
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final int DEFAULT_SEARCH_RESULTS = 20;
+    private static final int MAX_SEARCH_RESULTS = 100;
+    private static final int MAX_BULK_DELETE = 1000;
+    private static final int MAX_BATCH_LOOKUP = 200;
     private final ProductRepository productRepository;
-    private final CartItemRepository cartItemRepository;
-    private final OrderItemRepository orderItemRepository;
+    private final ProductProjectionRepository productProjections;
+    private final ProductSearchIndex searchIndex;
+    private final ProductSuggestIndex suggestIndex;
+    private final ProductCache productCache;
+    private final SearchResultCache searchResultCache;
+    private final ProductColumnarView columnarView;
+    private final ApplicationEventPublisher eventPublisher;
+    // concurrent cache misses for one product at one cache generation share a single findById
+    private final SingleFlight<ProductCache.Load, Optional<Product>> productLoads = new SingleFlight<>();
 
-    public ProductService(ProductRepository productRepository, CartItemRepository cartItemRepository, OrderItemRepository orderItemRepository) {
+    public ProductService(ProductRepository productRepository, ProductProjectionRepository productProjections,
+                          ProductSearchIndex searchIndex, ProductSuggestIndex suggestIndex, ProductCache productCache,
+                          SearchResultCache searchResultCache,
+                          ProductColumnarView columnarView, ApplicationEventPublisher eventPublisher) {
         this.productRepository = productRepository;
-        this.cartItemRepository = cartItemRepository;
-        this.orderItemRepository = orderItemRepository;
+        this.productProjections = productProjections;
+        this.searchIndex = searchIndex;
+        this.suggestIndex = suggestIndex;
+        this.productCache = productCache;
+        this.searchResultCache = searchResultCache;
+        this.columnarView = columnarView;
+        this.eventPublisher = eventPublisher;
     }
 
     public List<Product> getAllProducts() {
-        return productRepository.findAll();
+        return productRepository.findByDiscontinuedFalse();
+    }
+
+    // Sparse fieldsets: the methods taking a FieldSelection read only the selected columns
+    public FieldSelection productFields(String fields) {
+        return ProductProjectionRepository.select(fields);
+    }
+
+    public List<Map<String, Object>> getAllProducts(FieldSelection fields) {
+        return productProjections.findAll(fields);
+    }
+
+    // Keyset pagination: "after" is the productId of the last item already seen
+    public ProductPage<Product> getProductPage(Integer after, Integer limit, String sort) {
+        int size = pageSize(limit);
+        String sortKey = sort == null ? "id" : sort.toLowerCase();
+        Limit pageLimit = Limit.of(size);
+        List<Product> items;
+        switch (sortKey) {
+            case "id":
+                items = after == null
+                        ? productRepository.findByDiscontinuedFalseOrderByProductIdAsc(pageLimit)
+                        : productRepository.findByProductIdGreaterThanAndDiscontinuedFalseOrderByProductIdAsc(after, pageLimit);
+                break;
+            case "price":
+                items = after == null
+                        ? productRepository.findByDiscontinuedFalseOrderByPriceAscProductIdAsc(pageLimit)
+                        : productRepository.findPageAfterPrice(cursorProduct(after).getPrice(), after, pageLimit);
+                break;
+            case "name":
+                items = after == null
+                        ? productRepository.findByDiscontinuedFalseOrderByProductNameAscProductIdAsc(pageLimit)
+                        : productRepository.findPageAfterName(cursorProduct(after).getProductName(), after, pageLimit);
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported sort: " + sort + " (use id, price or name)");
+        }
+        Integer nextAfter = items.size() == size ? items.get(items.size() - 1).getProductId() : null;
+        return new ProductPage<>(items, nextAfter);
+    }
+
+    public ProductPage<Map<String, Object>> getProductPage(Integer after, Integer limit, String sort, FieldSelection fields) {
+        int size = pageSize(limit);
+        String sortKey = sort == null ? "id" : sort.toLowerCase();
+        List<Map<String, Object>> items;
+        switch (sortKey) {
+            case "id":
+                items = productProjections.findPage(fields, null, null, after, size);
+                break;
+            case "price":
+                items = productProjections.findPage(fields, "price", after == null ? null : cursorProduct(after).getPrice(), after, size);
+                break;
+            case "name":
+                items = productProjections.findPage(fields, "product_name", after == null ? null : cursorProduct(after).getProductName(), after, size);
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported sort: " + sort + " (use id, price or name)");
+        }
+        Integer nextAfter = items.size() == size ? (Integer) items.get(items.size() - 1).get("productId") : null;
+        return new ProductPage<>(items, nextAfter);
+    }
+
+    private static int pageSize(Integer limit) {
+        return limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    }
+
+    // Price-range / in-stock filtering answered from the columnar view, then one IN query for the rows
+    public List<Product> filterProducts(BigDecimal minPrice, BigDecimal maxPrice, boolean inStockOnly, String sort, Integer limit) {
+        return loadInOrder(filterIds(minPrice, maxPrice, inStockOnly, sort, limit));
+    }
+
+    public List<Map<String, Object>> filterProducts(BigDecimal minPrice, BigDecimal maxPrice, boolean inStockOnly, String sort, Integer limit,
+                                                    FieldSelection fields) {
+        int[] ids = filterIds(minPrice, maxPrice, inStockOnly, sort, limit);
+        List<Integer> idList = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            idList.add(id);
+        }
+        return productProjections.findByIds(fields, idList);
+    }
+
+    private int[] filterIds(BigDecimal minPrice, BigDecimal maxPrice, boolean inStockOnly, String sort, Integer limit) {
+        int size = pageSize(limit);
+        String sortKey = sort == null ? "price" : sort.toLowerCase();
+        if (!sortKey.equals("price") && !sortKey.equals("-price") && !sortKey.equals("id")) {
+            throw new IllegalArgumentException("Unsupported sort for filtered listing: " + sort + " (use price, -price or id)");
+        }
+        long minCents = minPrice == null ? Long.MIN_VALUE : ProductColumnarView.toCents(minPrice);
+        long maxCents = maxPrice == null ? Long.MAX_VALUE : ProductColumnarView.toCents(maxPrice);
+        return columnarView.filter(minCents, maxCents, inStockOnly, sortKey, size);
+    }
+
+    private List<Product> loadInOrder(int[] ids) {
+        List<Integer> idList = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            idList.add(id);
+        }
+        Map<Integer, Product> byId = new HashMap<>();
+        for (Product product : productRepository.findAllById(idList)) {
+            byId.put(product.getProductId(), product);
+        }
+        List<Product> ordered = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            Product product = byId.get(id);
+            if (product != null) {
+                ordered.add(product);
+            }
+        }
+        return ordered;
+    }
+
+    private Product cursorProduct(Integer after) {
+        return productRepository.findById(after)
+                .orElseThrow(() -> new IllegalArgumentException("Invalid cursor: product " + after + " not found"));
     }
 
     public Optional<Product> getProductById(Integer id) {
-        return productRepository.findById(id);
+        return productCache.get(id, load -> productLoads.load(load, key -> productRepository.findByProductIdAndDiscontinuedFalse(key.id())));
+    }
+
+    // Batch lookup for carts and order history: cached products plus one IN query for the rest,
+    // returned in request order. Unknown or discontinued ids are left out; duplicates collapse.
+    public List<Product> getProductsByIds(List<Integer> ids) {
+        Collection<Integer> distinct = batchIds(ids);
+        Map<Integer, Product> byId = productCache.getAll(distinct, productRepository::findByProductIdInAndDiscontinuedFalse);
+        List<Product> ordered = new ArrayList<>(byId.size());
+        for (Integer id : distinct) {
+            Product product = byId.get(id);
+            if (product != null) {
+                ordered.add(product);
+            }
+        }
+        return ordered;
+    }
+
+    public List<Map<String, Object>> getProductsByIds(List<Integer> ids, FieldSelection fields) {
+        return productProjections.findByIds(fields, batchIds(ids));
+    }
+
+    private static Collection<Integer> batchIds(List<Integer> ids) {
+        Collection<Integer> distinct = new LinkedHashSet<>(ids);
+        if (distinct.size() > MAX_BATCH_LOOKUP) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_LOOKUP + " products can be looked up per request");
+        }
+        return distinct;
+    }
+
+    public Map<String, Object> productLoadStats() {
+        return productLoads.stats();
     }
 
     public List<Product> searchProducts(String query) {
+        return searchProducts(query, false, null);
+    }
+
+    // Results are ranked by relevance; no limit means the top DEFAULT_SEARCH_RESULTS, and a
+    // caller's limit is clamped to MAX_SEARCH_RESULTS.
+    // Until the index has been built this falls back to a limited substring query on the name:
+    // no ranking, and fuzzy is ignored because there are no indexed terms to match against.
+    public List<Product> searchProducts(String query, boolean fuzzy, Integer requestedLimit) {
+        int limit = requestedLimit == null ? DEFAULT_SEARCH_RESULTS : Math.max(1, Math.min(requestedLimit, MAX_SEARCH_RESULTS));
         try {
             logger.info("Searching products with query: {}", query);
             if (query == null || query.trim().isEmpty()) {
@@ -42,7 +233,10 @@ public class ProductService {
                 return List.of();
             }
             
-            List<Product> results = productRepository.findByProductNameContainingIgnoreCase(query.trim());
+            List<Product> results = searchIndex.isReady()
+                    ? searchResultCache.get(query, fuzzy, limit, () -> searchIndex.search(query, false, fuzzy, limit))
+                    : productRepository.findByProductNameContainingIgnoreCaseAndDiscontinuedFalseOrderByProductIdAsc(
+                            query.trim(), Limit.of(limit));
             logger.info("Found {} products matching query: {}", results.size(), query);
             return results;
         } catch (Exception e) {
@@ -59,7 +253,9 @@ public class ProductService {
                 return List.of();
             }
             
-            List<Product> results = productRepository.findByProductNameContainingIgnoreCase(name.trim());
+            List<Product> results = searchIndex.isReady()
+                    ? searchIndex.search(name, true, false, 0)
+                    : productRepository.findByProductNameContainingIgnoreCaseAndDiscontinuedFalse(name.trim());
             logger.info("Found {} products matching name: {}", results.size(), name);
             return results;
         } catch (Exception e) {
@@ -68,14 +264,37 @@ public class ProductService {
         }
     }
 
+    public List<Map<String, Object>> searchProductsByName(String name, FieldSelection fields) {
+        if (name == null || name.trim().isEmpty()) {
+            return List.of();
+        }
+        if (!searchIndex.isReady()) {
+            return productProjections.findByNameContaining(fields, name.trim());
+        }
+        List<Integer> ids = new ArrayList<>();
+        for (Product product : searchIndex.search(name, true, false, 0)) {
+            ids.add(product.getProductId());
+        }
+        return productProjections.findByIds(fields, ids);
+    }
+
+    public List<ProductSuggestion> suggestProducts(String prefix, int limit) {
+        if (prefix == null || prefix.isBlank()) {
+            return List.of();
+        }
+        return suggestIndex.suggest(prefix, Math.max(1, Math.min(limit, MAX_SUGGESTIONS)));
+    }
+
     @Transactional
     public Product addProduct(Product product) {
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        eventPublisher.publishEvent(ProductChangedEvent.created(saved));
+        return saved;
     }
 
     @Transactional
     public Product updateProduct(Integer productId, Product updatedProduct) {
-        Product product = productRepository.findById(productId)
+        Product product = productRepository.findByProductIdAndDiscontinuedFalse(productId)
                 .orElseThrow(() -> new IllegalArgumentException("Product not found"));
         product.setProductName(updatedProduct.getProductName());
         product.setPrice(updatedProduct.getPrice());
@@ -83,68 +302,40 @@ public class ProductService {
         product.setProductDescription(updatedProduct.getProductDescription());
         product.setImageUrl(updatedProduct.getImageUrl());
         product.setReserved(updatedProduct.getReserved());
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        eventPublisher.publishEvent(ProductChangedEvent.updated(saved));
+        return saved;
     }
 
+    // Soft delete: one UPDATE hides the product from listing and search right away.
+    // Order history keeps its rows; cart lines are purged in the background by ProductCompactionJob.
     @Transactional
-    public void deleteProduct(Integer productId) {
-        try {
-            // Check if product exists
-            Product product = productRepository.findById(productId)
-                    .orElseThrow(() -> new IllegalArgumentException("Product not found with ID: " + productId));
-            
-            // First, delete all cart items for this product
-            deleteCartItemsForProduct(productId);
-            
-            // Then, delete all order items for this product
-            deleteOrderItemsForProduct(productId);
-            
-            // Delete the product (this should now succeed)
-            productRepository.deleteById(productId);
-            logger.info("Product deleted successfully: {}", productId);
-            
-        } catch (Exception e) {
-            logger.error("Error deleting product with ID: {}", productId, e);
-            
-            // Check if it's a foreign key constraint violation
-            if (e.getMessage() != null && e.getMessage().contains("FK551LOSX9J75SS5D6BFSQVIJNA")) {
-                throw new RuntimeException("Cannot delete product because it is referenced in orders. Please remove all order items containing this product first.");
-            } else if (e.getMessage() != null && e.getMessage().contains("FKJCYD5WV4IGQNW413RGXBFU4NV")) {
-                throw new RuntimeException("Cannot delete product because it is in shopping carts. Please remove all cart items containing this product first.");
-            } else if (e.getMessage() != null && e.getMessage().contains("FKJ")) {
-                throw new RuntimeException("Cannot delete product because it is in shopping carts. Please remove all cart items containing this product first.");
-            } else {
-                throw new RuntimeException("Failed to delete product: " + e.getMessage());
-            }
+    public ProductDeletionResult deleteProduct(Integer productId) {
+        int discontinued = productRepository.discontinueByProductIds(List.of(productId));
+        if (discontinued == 0) {
+            throw new IllegalArgumentException("Product not found with ID: " + productId);
         }
+        eventPublisher.publishEvent(ProductChangedEvent.deleted(productId));
+        logger.info("Product discontinued: {}", productId);
+        return new ProductDeletionResult(discontinued);
     }
 
-    private void deleteCartItemsForProduct(Integer productId) {
-        try {
-            // Find all cart items for this product
-            List<CartItem> cartItems = cartItemRepository.findByProduct_ProductId(productId);
-            if (!cartItems.isEmpty()) {
-                logger.info("Deleting {} cart items for product ID: {}", cartItems.size(), productId);
-                cartItemRepository.deleteAll(cartItems);
-            }
-        } catch (Exception e) {
-            logger.error("Error deleting cart items for product ID: {}", productId, e);
-            // Don't throw here, let the main delete operation handle it
+    // Discontinues every listed product that is still active; unknown ids are ignored
+    @Transactional
+    public ProductDeletionResult deleteProducts(Collection<Integer> productIds) {
+        if (productIds.size() > MAX_BULK_DELETE) {
+            throw new IllegalArgumentException("At most " + MAX_BULK_DELETE + " products can be deleted per request");
         }
-    }
-
-    private void deleteOrderItemsForProduct(Integer productId) {
-        try {
-            // Find all order items for this product
-            List<OrderItem> orderItems = orderItemRepository.findByProduct_ProductId(productId);
-            if (!orderItems.isEmpty()) {
-                logger.info("Deleting {} order items for product ID: {}", orderItems.size(), productId);
-                orderItemRepository.deleteAll(orderItems);
-            }
-        } catch (Exception e) {
-            logger.error("Error deleting order items for product ID: {}", productId, e);
-            // Don't throw here, let the main delete operation handle it
+        List<Integer> active = productRepository.findActiveIds(productIds);
+        if (active.isEmpty()) {
+            return new ProductDeletionResult(0);
+        }
+        int discontinued = productRepository.discontinueByProductIds(active);
+        for (Integer productId : active) {
+            eventPublisher.publishEvent(ProductChangedEvent.deleted(productId));
         }
+        logger.info("Bulk discontinued {} products", discontinued);
+        return new ProductDeletionResult(discontinued);
     }
 
     public boolean canDeleteProduct(Integer productId) {
@@ -0,0 +1,435 @@
+package com.example.gros.service;
+
+import com.example.gros.repository.CartLineRepository;
+import com.example.gros.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Write-behind cart store, enabled with gros.cart.store=write-behind. Carts live in memory in a
+// map striped by customer id, so cart edits touch neither the database nor other stripes' locks.
+// Dirty carts are written to cart_item in JDBC batches every gros.cart.flush-interval-ms, before
+// checkout and on shutdown: a crash loses at most one flush window of cart edits.
+@Component
+@ConditionalOnProperty(name = "gros.cart.store", havingValue = "write-behind")
+public class WriteBehindCartStore {
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindCartStore.class);
+    private static final int STRIPES = 64;
+
+    private static final class Cart {
+        // productId -> quantity, in the order lines were added
+        final Map<Integer, Integer> lines = new LinkedHashMap<>();
+        long version;
+        long flushedVersion;
+        long lastAccess;
+        // consecutive flushes of this cart that failed; 0 once one succeeds
+        int failedFlushes;
+
+        boolean dirty() {
+            return version != flushedVersion;
+        }
+    }
+
+    private static final class Stripe {
+        final ReentrantLock lock = new ReentrantLock();
+        final Map<Integer, Cart> carts = new HashMap<>();
+        // customers whose cart_item rows a still-open transaction has deleted (checkout, clear cart)
+        // -> whether a flush wrote their rows back since; their carts are not snapshotted meanwhile
+        final Map<Integer, Boolean> clearing = new HashMap<>();
+        // bumped whenever a committed clear drops a cart, so a load that read the rows before it is retried
+        long clears;
+    }
+
+    private record Snapshot(Integer customerId, Cart cart, long version, Map<Integer, Integer> lines) {}
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final CartLineRepository cartLines;
+    private final UserRepository userRepo;
+    // each flush is its own transaction; callers never hold one (see flush)
+    private final TransactionTemplate flushTransaction;
+    // one flush at a time, so an older snapshot can never overwrite a newer one
+    private final ReentrantLock flushLock = new ReentrantLock();
+    // committed clears whose in-memory carts are still to be dropped, under flushLock
+    private final Set<Integer> cleared = ConcurrentHashMap.newKeySet();
+    private final int batchSize;
+    private final long idleEvictMillis;
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder cartsFlushed = new LongAdder();
+    private final LongAdder flushFailures = new LongAdder();
+    private final LongAdder cartFlushFailures = new LongAdder();
+    private volatile LocalDateTime lastFlush;
+
+    public WriteBehindCartStore(CartLineRepository cartLines, UserRepository userRepo, PlatformTransactionManager transactionManager,
+                                @Value("${gros.cart.flush-batch-size:500}") int batchSize,
+                                @Value("${gros.cart.idle-evict-ms:1800000}") long idleEvictMillis) {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.cartLines = cartLines;
+        this.userRepo = userRepo;
+        this.flushTransaction = new TransactionTemplate(transactionManager);
+        this.batchSize = Math.max(1, batchSize);
+        this.idleEvictMillis = idleEvictMillis;
+        logger.info("Write-behind cart store enabled");
+    }
+
+    // Copy of the customer's lines (productId -> quantity)
+    public Map<Integer, Integer> lines(Integer customerId) {
+        return withCart(customerId, cart -> new LinkedHashMap<>(cart.lines));
+    }
+
+    public void put(Integer customerId, Integer productId, int quantity) {
+        withCart(customerId, cart -> {
+            cart.lines.put(productId, quantity);
+            cart.version++;
+            return null;
+        });
+    }
+
+    // Returns false when the product is not in the cart
+    public boolean update(Integer customerId, Integer productId, int quantity) {
+        return withCart(customerId, cart -> {
+            if (cart.lines.replace(productId, quantity) == null) {
+                return false;
+            }
+            cart.version++;
+            return true;
+        });
+    }
+
+    // Returns false when the product is not in the cart
+    public boolean remove(Integer customerId, Integer productId) {
+        return withCart(customerId, cart -> {
+            if (cart.lines.remove(productId) == null) {
+                return false;
+            }
+            cart.version++;
+            return true;
+        });
+    }
+
+    // Applies several edits as one: the cart only changes if edit completes without throwing
+    public void edit(Integer customerId, Consumer<Map<Integer, Integer>> edit) {
+        withCart(customerId, cart -> {
+            Map<Integer, Integer> lines = new LinkedHashMap<>(cart.lines);
+            edit.accept(lines);
+            cart.lines.clear();
+            cart.lines.putAll(lines);
+            cart.version++;
+            return null;
+        });
+    }
+
+    // Drops the in-memory cart; the next access reloads it from cart_item
+    public void evict(Integer customerId) {
+        Stripe stripe = stripe(customerId);
+        stripe.lock.lock();
+        try {
+            stripe.carts.remove(customerId);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    // Called inside a transaction that has just deleted the customer's cart_item rows. Until it
+    // completes (see cleared) the cart is not flushed, so its lines cannot be written back.
+    public void clearing(Integer customerId) {
+        Stripe stripe = stripe(customerId);
+        stripe.lock.lock();
+        try {
+            stripe.clearing.put(customerId, Boolean.FALSE);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    // Called once that transaction has completed. On commit the in-memory cart is dropped under
+    // flushLock, so no flush is halfway through writing it. The caller may still hold the
+    // transaction's connection, so it never waits for a running flush: that flush drops the cart
+    // itself before it lets go of the lock.
+    public void cleared(Integer customerId, boolean committed) {
+        if (!committed) {
+            Stripe stripe = stripe(customerId);
+            stripe.lock.lock();
+            try {
+                stripe.clearing.remove(customerId);
+            } finally {
+                stripe.lock.unlock();
+            }
+            return;
+        }
+        cleared.add(customerId);
+        if (flushLock.tryLock()) {
+            unlockFlush();
+        }
+    }
+
+    // Writes one customer's cart now if it has unflushed edits (used before checkout). Must be called
+    // before the caller holds a pooled connection: waiting on flushLock with one, behind a flush that
+    // needs a connection of its own, can drain the pool.
+    public void flush(Integer customerId) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Cart flush must run outside a transaction");
+        }
+        flushLock.lock();
+        try {
+            Snapshot snapshot = null;
+            Stripe stripe = stripe(customerId);
+            stripe.lock.lock();
+            try {
+                Cart cart = stripe.carts.get(customerId);
+                if (cart != null && cart.dirty() && !stripe.clearing.containsKey(customerId)) {
+                    snapshot = snapshot(customerId, cart);
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+            if (snapshot != null) {
+                write(List.of(snapshot));
+            }
+        } finally {
+            unlockFlush();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${gros.cart.flush-interval-ms:1000}")
+    public void flushDirty() {
+        flushLock.lock();
+        try {
+            List<Snapshot> snapshots = new ArrayList<>();
+            long now = System.currentTimeMillis();
+            for (Stripe stripe : stripes) {
+                stripe.lock.lock();
+                try {
+                    Iterator<Map.Entry<Integer, Cart>> it = stripe.carts.entrySet().iterator();
+                    while (it.hasNext()) {
+                        Map.Entry<Integer, Cart> entry = it.next();
+                        Cart cart = entry.getValue();
+                        if (stripe.clearing.containsKey(entry.getKey())) {
+                            continue;
+                        }
+                        if (cart.dirty()) {
+                            snapshots.add(snapshot(entry.getKey(), cart));
+                        } else if (now - cart.lastAccess > idleEvictMillis) {
+                            it.remove();
+                        }
+                    }
+                } finally {
+                    stripe.lock.unlock();
+                }
+            }
+            if (!snapshots.isEmpty()) {
+                write(snapshots);
+            }
+        } catch (RuntimeException e) {
+            // carts stay dirty and are retried on the next run
+            flushFailures.increment();
+            logger.error("Cart flush failed", e);
+        } finally {
+            unlockFlush();
+        }
+    }
+
+    // Drops the carts of committed clears, then releases flushLock. Takes it back for clears
+    // that arrived meanwhile and could not get it themselves.
+    private void unlockFlush() {
+        do {
+            for (Integer customerId : List.copyOf(cleared)) {
+                cleared.remove(customerId);
+                Stripe stripe = stripe(customerId);
+                stripe.lock.lock();
+                try {
+                    stripe.clears++;
+                    Boolean rewritten = stripe.clearing.remove(customerId);
+                    if (Boolean.TRUE.equals(rewritten)) {
+                        // a flush snapshotted the cart before the clear and wrote its rows back
+                        // after it: an empty dirty cart makes the next flush delete them again
+                        Cart empty = new Cart();
+                        empty.version = 1;
+                        empty.lastAccess = System.currentTimeMillis();
+                        stripe.carts.put(customerId, empty);
+                    } else {
+                        stripe.carts.remove(customerId);
+                    }
+                } finally {
+                    stripe.lock.unlock();
+                }
+            }
+            flushLock.unlock();
+        } while (!cleared.isEmpty() && flushLock.tryLock());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushDirty();
+    }
+
+    public Map<String, Object> stats() {
+        int carts = 0;
+        int dirty = 0;
+        int failing = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                carts += stripe.carts.size();
+                for (Cart cart : stripe.carts.values()) {
+                    if (cart.dirty()) {
+                        dirty++;
+                    }
+                    if (cart.failedFlushes > 0) {
+                        failing++;
+                    }
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return Map.of(
+            "carts", carts,
+            "dirtyCarts", dirty,
+            "flushes", flushes.sum(),
+            "cartsFlushed", cartsFlushed.sum(),
+            "flushFailures", flushFailures.sum(),
+            "cartFlushFailures", cartFlushFailures.sum(),
+            "failingCarts", failing,
+            "lastFlush", lastFlush == null ? "never" : lastFlush.toString()
+        );
+    }
+
+    private <T> T withCart(Integer customerId, Function<Cart, T> op) {
+        Stripe stripe = stripe(customerId);
+        while (true) {
+            long clears;
+            stripe.lock.lock();
+            try {
+                Cart cart = stripe.carts.get(customerId);
+                if (cart != null) {
+                    cart.lastAccess = System.currentTimeMillis();
+                    return op.apply(cart);
+                }
+                clears = stripe.clears;
+            } finally {
+                stripe.lock.unlock();
+            }
+            // load outside the lock so a slow read does not stall the rest of the stripe
+            Cart loaded = load(customerId);
+            stripe.lock.lock();
+            try {
+                Cart cart = stripe.carts.get(customerId);
+                if (cart == null) {
+                    if (stripe.clears != clears) {
+                        // a checkout or clear committed meanwhile: the rows read may be gone
+                        continue;
+                    }
+                    stripe.carts.put(customerId, loaded);
+                    cart = loaded;
+                }
+                cart.lastAccess = System.currentTimeMillis();
+                return op.apply(cart);
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+    }
+
+    private Cart load(Integer customerId) {
+        if (!userRepo.existsById(customerId)) {
+            throw new IllegalArgumentException("User with customerId " + customerId + " not found");
+        }
+        Cart cart = new Cart();
+        cart.lines.putAll(cartLines.findLines(customerId));
+        return cart;
+    }
+
+    private static Snapshot snapshot(Integer customerId, Cart cart) {
+        return new Snapshot(customerId, cart, cart.version, new LinkedHashMap<>(cart.lines));
+    }
+
+    // Replaces each snapshotted cart's rows in one transaction, then marks those versions flushed.
+    // If that fails, the carts are retried one transaction each so a bad cart cannot hold back the
+    // rest: the ones that still fail stay dirty and are counted. A lone cart's failure is thrown.
+    private void write(List<Snapshot> snapshots) {
+        List<Snapshot> written = snapshots;
+        try {
+            replace(snapshots);
+        } catch (RuntimeException e) {
+            if (snapshots.size() == 1) {
+                failed(snapshots.get(0));
+                throw e;
+            }
+            logger.warn("Cart flush of {} carts failed, retrying them one by one", snapshots.size(), e);
+            written = new ArrayList<>();
+            for (Snapshot snapshot : snapshots) {
+                try {
+                    replace(List.of(snapshot));
+                    written.add(snapshot);
+                } catch (RuntimeException cartFailure) {
+                    logger.error("Flush of cart for customer {} failed ({} in a row)",
+                            snapshot.customerId(), failed(snapshot), cartFailure);
+                }
+            }
+        }
+        for (Snapshot snapshot : written) {
+            Stripe stripe = stripe(snapshot.customerId());
+            stripe.lock.lock();
+            try {
+                Cart cart = snapshot.cart();
+                if (snapshot.version() > cart.flushedVersion) {
+                    cart.flushedVersion = snapshot.version();
+                }
+                cart.failedFlushes = 0;
+                stripe.clearing.replace(snapshot.customerId(), Boolean.TRUE);
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        flushes.increment();
+        cartsFlushed.add(written.size());
+        lastFlush = LocalDateTime.now();
+    }
+
+    private void replace(List<Snapshot> snapshots) {
+        Map<Integer, Map<Integer, Integer>> carts = new LinkedHashMap<>();
+        for (Snapshot snapshot : snapshots) {
+            carts.put(snapshot.customerId(), snapshot.lines());
+        }
+        flushTransaction.executeWithoutResult(status -> cartLines.replaceCarts(carts, batchSize));
+    }
+
+    // Counts a failed write of the cart; returns its consecutive failures
+    private int failed(Snapshot snapshot) {
+        cartFlushFailures.increment();
+        Stripe stripe = stripe(snapshot.customerId());
+        stripe.lock.lock();
+        try {
+            return ++snapshot.cart().failedFlushes;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    private Stripe stripe(Integer customerId) {
+        return stripes[Math.floorMod(customerId.hashCode(), STRIPES)];
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.gros;
+
+import com.example.gros.search.BkTree;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Typo lookups against a brute-force scan with an independent optimal string alignment distance.
+// OSA is not a metric, so the tree may miss a borderline match: everything it returns must be
+// within the distance, and it must find nearly everything the scan does.
+class BkTreeTests {
+
+    @Test
+    void transpositionIsOneEdit() {
+        BkTree tree = new BkTree();
+        List.of("apples", "apple", "maple", "milk", "silk", "bananas").forEach(tree::add);
+
+        assertEquals(Set.of("apples"), Set.copyOf(tree.search("appels", 1)));
+        assertEquals(Set.of("milk", "silk"), Set.copyOf(tree.search("mlik", 2)));
+        assertEquals(Set.of("milk"), Set.copyOf(tree.search("milk", 0)));
+        assertTrue(tree.search("kiwi", 1).isEmpty());
+    }
+
+    @Test
+    void ignoresDuplicatesAndClears() {
+        BkTree tree = new BkTree();
+        tree.add("milk");
+        tree.add("milk");
+        tree.add("silk");
+        assertEquals(2, tree.size());
+
+        tree.clear();
+        assertEquals(0, tree.size());
+        assertTrue(tree.search("milk", 2).isEmpty());
+    }
+
+    @Test
+    void agreesWithABruteForceScan() {
+        Random random = new Random(11);
+        BkTree tree = new BkTree();
+        Set<String> terms = new HashSet<>();
+        for (int i = 0; i < 3000; i++) {
+            String term = randomWord(random);
+            terms.add(term);
+            tree.add(term);
+        }
+        assertEquals(terms.size(), tree.size());
+
+        int expectedMatches = 0;
+        int foundMatches = 0;
+        for (int q = 0; q < 300; q++) {
+            String query = randomWord(random);
+            int maxDistance = 1 + random.nextInt(2);
+            Set<String> expected = new HashSet<>();
+            for (String term : terms) {
+                if (osa(query, term) <= maxDistance) {
+                    expected.add(term);
+                }
+            }
+            List<String> found = tree.search(query, maxDistance);
+            assertEquals(found.size(), Set.copyOf(found).size(), "duplicate match");
+            for (String term : found) {
+                assertTrue(expected.contains(term), query + " -> " + term);
+            }
+            expectedMatches += expected.size();
+            foundMatches += found.size();
+        }
+        assertTrue(expectedMatches > 100, "too few matches to say anything");
+        assertTrue(foundMatches >= expectedMatches * 0.99, foundMatches + " of " + expectedMatches);
+    }
+
+    // Textbook full-matrix OSA, deliberately not the two-row version under test
+    private static int osa(String a, String b) {
+        int[][] d = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            d[i][0] = i;
+        }
+        for (int j = 0; j <= b.length(); j++) {
+            d[0][j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                d[i][j] = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1), d[i - 1][j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    d[i][j] = Math.min(d[i][j], d[i - 2][j - 2] + 1);
+                }
+            }
+        }
+        return d[a.length()][b.length()];
+    }
+
+    // short words over a small alphabet, so many terms sit within one or two edits of each other
+    private static String randomWord(Random random) {
+        StringBuilder word = new StringBuilder();
+        int length = 3 + random.nextInt(5);
+        for (int i = 0; i < length; i++) {
+            word.append((char) ('a' + random.nextInt(5)));
+        }
+        return word.toString();
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.gros;
+
+import com.example.gros.repository.CartLineRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Diff writes for the batch cart endpoint: only changed lines are written, and never a line for a
+// product discontinued after the caller's check.
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+class CartLineRepositoryTests {
+    private static final int CUSTOMER_ID = 5;
+
+    @Autowired
+    private CartLineRepository cartLines;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void restore() {
+        jdbcTemplate.update("DELETE FROM cart_item WHERE user_id = ?", CUSTOMER_ID);
+        jdbcTemplate.update("UPDATE product SET discontinued = FALSE WHERE product_id = 2");
+    }
+
+    @Test
+    void writesOnlyTheDifference() {
+        cartLines.upsert(CUSTOMER_ID, 1, 1);
+        cartLines.upsert(CUSTOMER_ID, 2, 1);
+
+        List<Integer> rejected = cartLines.writeChanges(CUSTOMER_ID, Map.of(1, 1, 2, 1), Map.of(1, 4, 3, 2));
+
+        assertEquals(List.of(), rejected);
+        assertEquals(Map.of(1, 4, 3, 2), cartLines.findLines(CUSTOMER_ID));
+    }
+
+    @Test
+    void discontinuedProductsAreRejectedNotWritten() {
+        jdbcTemplate.update("UPDATE product SET discontinued = TRUE WHERE product_id = 2");
+
+        List<Integer> rejected = cartLines.writeChanges(CUSTOMER_ID, Map.of(), Map.of(1, 1, 2, 3));
+
+        assertEquals(List.of(2), rejected);
+        assertEquals(Map.of(1, 1), cartLines.findLines(CUSTOMER_ID));
+    }
+}
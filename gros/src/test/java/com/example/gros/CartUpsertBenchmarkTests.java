@@ -0,0 +1,118 @@
+package com.example.gros;
+
+import com.example.gros.model.CartItem;
+import com.example.gros.model.Product;
+import com.example.gros.model.User;
+import com.example.gros.repository.CartItemRepository;
+import com.example.gros.repository.CartLineRepository;
+import com.example.gros.repository.ProductRepository;
+import com.example.gros.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Add-to-cart latency: the old find-user / find-product / find-line / save path against the
+// single MERGE on (user_id, product_id). Timings are printed, not asserted; the assertions only
+// check that concurrent adds of the same product leave one line.
+// SQL logging is off so console output does not dominate the find+save numbers
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+class CartUpsertBenchmarkTests {
+    private static final int CUSTOMER_ID = 4;
+    private static final int WARMUP = 500;
+    private static final int ITERATIONS = 2000;
+    private static final int THREADS = 8;
+
+    @Autowired
+    private CartLineRepository cartLines;
+    @Autowired
+    private CartItemRepository cartItemRepo;
+    @Autowired
+    private ProductRepository productRepo;
+    @Autowired
+    private UserRepository userRepo;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void clearCart() {
+        jdbcTemplate.update("DELETE FROM cart_item WHERE user_id = ?", CUSTOMER_ID);
+    }
+
+    @Test
+    void mergeUpsertAgainstFindThenSave() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        long legacy = time(i -> tx.executeWithoutResult(status -> {
+            User user = userRepo.findById(CUSTOMER_ID).orElseThrow();
+            Product product = productRepo.findByProductIdAndDiscontinuedFalse(productId(i)).orElseThrow();
+            CartItem item = cartItemRepo.findByUserAndProduct_ProductId(user, product.getProductId())
+                    .orElse(new CartItem());
+            item.setUser(user);
+            item.setProduct(product);
+            item.setQuantity(1 + i % 5);
+            cartItemRepo.save(item);
+        }));
+        clearCart();
+        long merge = time(i -> cartLines.upsert(CUSTOMER_ID, productId(i), 1 + i % 5));
+
+        System.out.printf("Add to cart, %d iterations: find+save %.1f us/op, MERGE %.1f us/op (%.1fx)%n",
+                ITERATIONS, legacy / 1000.0 / ITERATIONS, merge / 1000.0 / ITERATIONS, (double) legacy / merge);
+        assertEquals(3, cartLines.findLines(CUSTOMER_ID).size());
+    }
+
+    @Test
+    void concurrentAddsKeepOneLinePerProduct() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int quantity = t + 1;
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < 200; i++) {
+                        cartLines.upsert(CUSTOMER_ID, 1, quantity);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        Integer lines = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM cart_item WHERE user_id = ? AND product_id = 1", Integer.class, CUSTOMER_ID);
+        assertEquals(1, lines);
+    }
+
+    private interface Op {
+        void run(int i);
+    }
+
+    private static long time(Op op) {
+        for (int i = 0; i < WARMUP; i++) {
+            op.run(i);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            op.run(i);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static int productId(int i) {
+        return 1 + i % 3;
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.gros;
+
+import com.example.gros.search.HeavyHitters;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Top-k over a Count-Min sketch: heavy keys surface through a long tail, the candidate set never
+// grows past k however many threads add at once, and estimates never undercount.
+class HeavyHittersTests {
+
+    @Test
+    void findsHeavyKeysThroughALongTail() {
+        HeavyHitters hitters = new HeavyHitters(5, 4, 1024);
+        Random random = new Random(3);
+        List<String> stream = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            for (int n = 0; n < 500 * (i + 1); n++) {
+                stream.add("heavy " + i);
+            }
+        }
+        for (int n = 0; n < 20_000; n++) {
+            stream.add("tail " + random.nextInt(10_000));
+        }
+        Collections.shuffle(stream, random);
+        stream.forEach(hitters::add);
+
+        List<Map<String, Object>> top = hitters.top(5);
+        assertEquals(List.of("heavy 4", "heavy 3", "heavy 2", "heavy 1", "heavy 0"),
+                top.stream().map(entry -> entry.get("query")).toList());
+        // Count-Min only overcounts, here by well under the gap between the heavy keys
+        long heaviest = (long) top.get(0).get("count");
+        assertTrue(heaviest >= 2500 && heaviest < 2600, "estimate " + heaviest);
+        assertEquals(stream.size(), hitters.total());
+    }
+
+    @Test
+    void neverTracksMoreThanKUnderConcurrentAdds() throws Exception {
+        int k = 8;
+        HeavyHitters hitters = new HeavyHitters(k, 4, 256);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<CompletableFuture<Void>> writers = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int thread = t;
+            writers.add(CompletableFuture.runAsync(() -> {
+                await(start);
+                for (int n = 0; n < 20_000; n++) {
+                    // distinct keys per thread race for the last free slots and for evictions
+                    hitters.add("t" + thread + " q" + (n % 64));
+                    if (n % 100 == 0) {
+                        assertTrue(hitters.top(Integer.MAX_VALUE).size() <= k);
+                    }
+                }
+            }, pool));
+        }
+        start.countDown();
+        CompletableFuture.allOf(writers.toArray(CompletableFuture[]::new)).get(30, TimeUnit.SECONDS);
+        pool.shutdown();
+
+        assertEquals(k, hitters.top(Integer.MAX_VALUE).size());
+        assertEquals(8L * 20_000, hitters.total());
+    }
+
+    @Test
+    void rejectsTrackingNothing() {
+        assertThrows(IllegalArgumentException.class, () -> new HeavyHitters(0, 4, 256));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
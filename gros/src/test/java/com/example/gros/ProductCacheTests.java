@@ -0,0 +1,138 @@
+package com.example.gros;
+
+import com.example.gros.cache.ProductCache;
+import com.example.gros.cache.SingleFlight;
+import com.example.gros.model.Product;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Read-through LRU cache in front of single-flight loads, as ProductService wires them
+class ProductCacheTests {
+
+    @Test
+    void servesHitsAndEvictsLeastRecentlyUsed() {
+        ProductCache cache = new ProductCache(2);
+        AtomicInteger loads = new AtomicInteger();
+        cache.get(1, load -> { loads.incrementAndGet(); return Optional.of(product(1, "1.00")); });
+        cache.get(2, load -> { loads.incrementAndGet(); return Optional.of(product(2, "1.00")); });
+        cache.get(1, load -> { loads.incrementAndGet(); return Optional.empty(); });
+        cache.get(3, load -> { loads.incrementAndGet(); return Optional.of(product(3, "1.00")); });
+        assertEquals(3, loads.get());
+
+        // 2 was least recently used, so it went when 3 came in (and 1 when 2 came back)
+        cache.get(2, load -> { loads.incrementAndGet(); return Optional.of(product(2, "1.00")); });
+        assertEquals(4, loads.get());
+        assertEquals(2L, cache.stats().get("evictions"));
+    }
+
+    @Test
+    void invalidationDropsTheEntry() {
+        ProductCache cache = new ProductCache(10);
+        cache.get(1, load -> Optional.of(product(1, "1.00")));
+        cache.invalidate(1);
+        Optional<Product> reloaded = cache.get(1, load -> Optional.of(product(1, "2.00")));
+        assertEquals(new BigDecimal("2.00"), reloaded.orElseThrow().getPrice());
+    }
+
+    @Test
+    void loadsSpanningAnInvalidationAreNotCached() {
+        ProductCache cache = new ProductCache(10);
+        cache.getAll(List.of(1), ids -> {
+            cache.invalidate(1);
+            return List.of(product(1, "1.00"));
+        });
+        Optional<Product> reloaded = cache.get(1, load -> Optional.of(product(1, "2.00")));
+        assertEquals(new BigDecimal("2.00"), reloaded.orElseThrow().getPrice());
+    }
+
+    @Test
+    void concurrentMissesShareOneLoad() throws Exception {
+        ProductCache cache = new ProductCache(10);
+        SingleFlight<ProductCache.Load, Optional<Product>> flights = new SingleFlight<>();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+
+        CompletableFuture<Optional<Product>> first = CompletableFuture.supplyAsync(() ->
+                cache.get(1, load -> flights.load(load, key -> {
+                    loads.incrementAndGet();
+                    started.countDown();
+                    await(release);
+                    return Optional.of(product(1, "1.00"));
+                })));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Optional<Product>> second = CompletableFuture.supplyAsync(() ->
+                cache.get(1, load -> flights.load(load, key -> {
+                    loads.incrementAndGet();
+                    return Optional.of(product(1, "9.99"));
+                })));
+        waitForCollapsed(flights, 1);
+        release.countDown();
+
+        assertEquals(new BigDecimal("1.00"), first.get(5, TimeUnit.SECONDS).orElseThrow().getPrice());
+        assertEquals(new BigDecimal("1.00"), second.get(5, TimeUnit.SECONDS).orElseThrow().getPrice());
+        assertEquals(1, loads.get());
+    }
+
+    // A miss after a write commits must not join a load that read the row before it
+    @Test
+    void missAfterInvalidationDoesNotJoinAnOlderLoad() throws Exception {
+        ProductCache cache = new ProductCache(10);
+        SingleFlight<ProductCache.Load, Optional<Product>> flights = new SingleFlight<>();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Optional<Product>> stale = CompletableFuture.supplyAsync(() ->
+                cache.get(1, load -> flights.load(load, key -> {
+                    started.countDown();
+                    await(release);
+                    return Optional.of(product(1, "1.00"));
+                })));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        // the price change commits while the first load is still in flight
+        cache.invalidate(1);
+        Optional<Product> fresh = cache.get(1, load -> flights.load(load, key -> Optional.of(product(1, "2.00"))));
+        release.countDown();
+        stale.get(5, TimeUnit.SECONDS);
+
+        assertEquals(new BigDecimal("2.00"), fresh.orElseThrow().getPrice());
+        Optional<Product> cached = cache.get(1, load -> Optional.empty());
+        assertEquals(new BigDecimal("2.00"), cached.orElseThrow().getPrice());
+    }
+
+    private static void waitForCollapsed(SingleFlight<?, ?> flights, long expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((long) flights.stats().get("collapsed") < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(expected, flights.stats().get("collapsed"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Product product(int id, String price) {
+        Product product = new Product();
+        product.setProductId(id);
+        product.setProductName("Product " + id);
+        product.setPrice(new BigDecimal(price));
+        product.setQuantity(10);
+        return product;
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.gros;
+
+import com.example.gros.service.ProductExportService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Catalog export from the forward-only cursor: every active product once, in id order, discontinued
+// ones left out, and CSV fields quoted only when they need it.
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+class ProductExportServiceTests {
+    @Autowired
+    private ProductExportService exportService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void addProducts() {
+        jdbcTemplate.update("INSERT INTO product (product_name, price, quantity, product_description, discontinued) " +
+                "VALUES ('Salt, \"sea\"', 0.99, 4, 'Flakes', FALSE), ('Old Stock', 1.00, 1, 'Gone', TRUE)");
+    }
+
+    @AfterEach
+    void removeProducts() {
+        jdbcTemplate.update("DELETE FROM product WHERE product_name IN ('Salt, \"sea\"', 'Old Stock')");
+    }
+
+    @Test
+    void ndjsonHasOneLinePerActiveProductInIdOrder() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.exportNdjson(out);
+
+        List<Integer> exported = new ArrayList<>();
+        for (String line : out.toString(StandardCharsets.UTF_8).split("\n")) {
+            JsonNode product = objectMapper.readTree(line);
+            exported.add(product.get("productId").asInt());
+            if (product.get("productId").asInt() == 3) {
+                assertEquals("Whole Milk", product.get("productName").asText());
+                assertEquals("3.49", product.get("price").decimalValue().toPlainString());
+            }
+        }
+        assertEquals(activeIds(), exported);
+    }
+
+    @Test
+    void csvQuotesOnlyWhatNeedsQuoting() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.exportCsv(out);
+
+        List<String> lines = List.of(out.toString(StandardCharsets.UTF_8).split("\n"));
+        assertEquals("productId,productName,price,quantity,productDescription,imageUrl", lines.get(0));
+        assertEquals(activeIds().size(), lines.size() - 1);
+        assertTrue(lines.get(1).startsWith("1,Fresh Apples,2.99,100,"));
+        assertTrue(lines.stream().anyMatch(line -> line.endsWith(",\"Salt, \"\"sea\"\"\",0.99,4,Flakes,")));
+        assertTrue(lines.stream().noneMatch(line -> line.contains("Old Stock")));
+    }
+
+    private List<Integer> activeIds() {
+        return jdbcTemplate.queryForList("SELECT product_id FROM product WHERE discontinued = FALSE ORDER BY product_id", Integer.class);
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.gros;
+
+import com.example.gros.dto.ProductImportResult;
+import com.example.gros.model.Product;
+import com.example.gros.service.ProductImportService;
+import com.example.gros.service.ProductService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Bulk import with two rows per batch: bad rows are reported by line without stopping the feed, a
+// database error rolls back only its own batch, and committed rows reach the search index.
+@SpringBootTest(properties = {
+    "spring.jpa.show-sql=false",
+    "gros.import.batch-size=2"
+})
+class ProductImportServiceTests {
+    @Autowired
+    private ProductImportService importService;
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void csvRowsAreValidatedOneByOne() throws IOException {
+        ProductImportResult result = importService.importCsv(stream("""
+                productName,price,quantity,productDescription
+                "Quince, ripe",2.50,10,"Sold ""by the piece\"""
+                Quinoa,abc,5,Grain
+                Quark,1.20,-1,Soft cheese
+
+                ,1.00,1,Nameless
+                "Quandong,1.00,1,Unterminated
+                Quahog,9.99,3,Clam
+                """));
+
+        assertEquals(2, result.getImported());
+        assertEquals(4, result.getFailed());
+        assertEquals(List.of(3L, 4L, 6L, 7L), result.getErrors().stream().map(ProductImportResult.RowError::getLine).toList());
+        assertTrue(result.getErrors().get(0).getMessage().startsWith("Invalid number"));
+        assertEquals("quantity: must be greater than or equal to 0", result.getErrors().get(1).getMessage());
+        assertEquals("Unterminated quoted field", result.getErrors().get(3).getMessage());
+
+        Product quince = productService.searchProducts("quince").get(0);
+        assertEquals("Quince, ripe", quince.getProductName());
+        assertEquals("Sold \"by the piece\"", quince.getProductDescription());
+        assertEquals(new BigDecimal("2.50"), quince.getPrice());
+    }
+
+    @Test
+    void csvHeaderMustNameTheRequiredColumns() {
+        assertThrows(IllegalArgumentException.class, () -> importService.importCsv(stream("name,price\nTea,1.00\n")));
+    }
+
+    @Test
+    void ndjsonIgnoresClientIdsAndReportsMalformedLines() throws IOException {
+        ProductImportResult result = importService.importNdjson(stream("""
+                {"productId": 1, "productName": "Yuzu", "price": 4.00, "quantity": 7, "productDescription": "Citrus", "extra": true}
+                {"productName": "Yam", "price":
+                {"productName": "Yarrow", "price": 20000, "quantity": 1, "productDescription": "Herb"}
+                """));
+
+        assertEquals(1, result.getImported());
+        assertEquals(List.of(2L, 3L), result.getErrors().stream().map(ProductImportResult.RowError::getLine).toList());
+        assertTrue(result.getErrors().get(0).getMessage().startsWith("Malformed JSON"));
+        // the feed's id is dropped: product 1 is untouched and Yuzu got a new id
+        assertEquals("Fresh Apples", jdbcTemplate.queryForObject("SELECT product_name FROM product WHERE product_id = 1", String.class));
+        assertTrue(productService.searchProducts("yuzu").get(0).getProductId() > 3);
+    }
+
+    @Test
+    void databaseErrorRollsBackOnlyItsBatch() throws IOException {
+        // passes validation, but is longer than the image_url column
+        String longUrl = "https://example.com/" + "x".repeat(300);
+        ProductImportResult result = importService.importCsv(stream(
+                "productName,price,quantity,productDescription,imageUrl\n" +
+                "Kale,1.00,1,Leafy,\n" +
+                "Kohlrabi,1.00,1,Bulb," + longUrl + "\n" +
+                "Kumquat,1.00,1,Citrus,\n" +
+                "Kiwano,1.00,1,Melon,\n"));
+
+        assertEquals(2, result.getImported());
+        assertEquals(List.of(2L, 3L), result.getErrors().stream().map(ProductImportResult.RowError::getLine).toList());
+        assertTrue(result.getErrors().get(0).getMessage().startsWith("Database error, batch rolled back"));
+        assertEquals(0, count("Kale"));
+        assertEquals(1, count("Kumquat"));
+        assertEquals(1, count("Kiwano"));
+    }
+
+    private int count(String name) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM product WHERE product_name = ?", Integer.class, name);
+    }
+
+    private static InputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.gros;
+
+import com.example.gros.dto.FieldSelection;
+import com.example.gros.repository.ProductProjectionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Sparse-fieldset product reads: only the asked-for columns come back, id always first, typed as the
+// entity would be, and the lookups keep their ordering and active-only rules.
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+class ProductProjectionRepositoryTests {
+    @Autowired
+    private ProductProjectionRepository projections;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void restore() {
+        jdbcTemplate.update("UPDATE product SET discontinued = FALSE WHERE product_id = 2");
+    }
+
+    @Test
+    void selectsOnlyTheRequestedFieldsWithTheIdFirst() {
+        FieldSelection fields = ProductProjectionRepository.select("price, productName,price");
+        assertEquals("product_id, price, product_name", fields.selectList());
+
+        Map<String, Object> milk = projections.findByIds(fields, List.of(3)).get(0);
+        assertEquals(List.of("productId", "price", "productName"), List.copyOf(milk.keySet()));
+        assertEquals(Map.of("productId", 3, "price", new BigDecimal("3.49"), "productName", "Whole Milk"), milk);
+    }
+
+    @Test
+    void rejectsUnknownFields() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> ProductProjectionRepository.select("productName,password"));
+        assertTrue(e.getMessage().startsWith("Unknown field: password"));
+    }
+
+    @Test
+    void idLookupKeepsRequestOrderAndSkipsInactive() {
+        jdbcTemplate.update("UPDATE product SET discontinued = TRUE WHERE product_id = 2");
+        FieldSelection fields = ProductProjectionRepository.select("productName");
+
+        List<Map<String, Object>> rows = projections.findByIds(fields, List.of(3, 999_999, 2, 1));
+
+        assertEquals(List.of(3, 1), rows.stream().map(row -> row.get("productId")).toList());
+    }
+
+    @Test
+    void nameSearchTreatsWildcardsLiterally() {
+        FieldSelection fields = ProductProjectionRepository.select("productName");
+        assertEquals(List.of(Map.of("productId", 3, "productName", "Whole Milk")), projections.findByNameContaining(fields, "MILK"));
+        assertTrue(projections.findByNameContaining(fields, "%").isEmpty());
+        assertTrue(projections.findByNameContaining(fields, "_").isEmpty());
+    }
+
+    @Test
+    void keysetPagesContinueWhereTheLastOneEnded() {
+        FieldSelection fields = ProductProjectionRepository.select("price");
+        List<Map<String, Object>> first = projections.findPage(fields, "price", null, null, 2);
+        Map<String, Object> last = first.get(first.size() - 1);
+        List<Map<String, Object>> second = projections.findPage(fields, "price", last.get("price"), (Integer) last.get("productId"), 2);
+
+        List<Object> paged = new ArrayList<>();
+        first.forEach(row -> paged.add(row.get("productId")));
+        second.forEach(row -> paged.add(row.get("productId")));
+        List<Integer> expected = jdbcTemplate.queryForList(
+                "SELECT product_id FROM product WHERE discontinued = FALSE ORDER BY price, product_id LIMIT 4", Integer.class);
+        assertEquals(expected, paged);
+    }
+}
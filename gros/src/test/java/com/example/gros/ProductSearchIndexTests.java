@@ -0,0 +1,160 @@
+package com.example.gros;
+
+import com.example.gros.event.ProductChangedEvent;
+import com.example.gros.model.Product;
+import com.example.gros.search.ProductSearchIndex;
+import com.example.gros.search.TextAnalyzer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// The inverted index on its own, fed through change events the way commits reach it, no Spring
+// context: which products a query finds, and that the postings follow creates, edits and deletes.
+class ProductSearchIndexTests {
+    private final TextAnalyzer analyzer = new TextAnalyzer(List.of("lowercase", "stem", "synonyms"),
+            new ClassPathResource("synonyms.txt"));
+    private final ProductSearchIndex index = new ProductSearchIndex(null, analyzer);
+
+    @BeforeEach
+    void stock() {
+        create(1, "Fresh Apples", "Crisp red apples");
+        create(2, "Organic Bananas", "Ripe yellow bananas");
+        create(3, "Whole Milk", "Fresh whole milk 1 gallon");
+        create(4, "Apple Juice", "Pressed from fresh apples");
+    }
+
+    @Test
+    void everyQueryWordMustMatch() {
+        assertEquals(List.of(3), ids(index.search("whole milk", false, false, 0)));
+        assertTrue(index.search("whole bananas", false, false, 0).isEmpty());
+        // "fresh" is in three products, but only one of them also mentions milk
+        assertEquals(List.of(3), ids(index.search("fresh milk", false, false, 0)));
+    }
+
+    @Test
+    void wordsMatchAsPrefixes() {
+        assertEquals(List.of(2), ids(index.search("organic ban", false, false, 0)));
+        assertEquals(List.of(2), ids(index.search("org ban", false, false, 0)));
+        assertTrue(index.search("bank", false, false, 0).isEmpty());
+    }
+
+    @Test
+    void nameOnlyIgnoresDescriptions() {
+        assertEquals(List.of(1), ids(index.search("fresh", true, false, 0)));
+        assertEquals(List.of(1, 3, 4), sorted(ids(index.search("fresh", false, false, 0))));
+    }
+
+    @Test
+    void followsEditsAndDeletes() {
+        index.onProductChanged(ProductChangedEvent.updated(product(2, "Plantains", "Green cooking plantains")));
+        assertTrue(index.search("bananas", false, false, 0).isEmpty());
+        assertEquals(List.of(2), ids(index.search("plantain", false, false, 0)));
+
+        index.onProductChanged(ProductChangedEvent.deleted(3));
+        assertTrue(index.search("milk", false, false, 0).isEmpty());
+
+        // a stock change swaps the entity but leaves the postings alone
+        Product restocked = product(1, "Fresh Apples", "Crisp red apples");
+        restocked.setQuantity(99);
+        index.onProductChanged(ProductChangedEvent.stockChanged(restocked));
+        assertEquals(99, index.search("crisp", false, false, 0).get(0).getQuantity());
+    }
+
+    @Test
+    void fuzzyToleratesTyposInNames() {
+        assertTrue(index.search("appels", false, false, 0).isEmpty());
+        assertEquals(List.of(1), ids(index.search("appels", false, true, 0)));
+        assertEquals(List.of(3), ids(index.search("mlik", false, true, 0)));
+        // words of three letters or fewer must be typed exactly
+        assertTrue(index.search("mik", false, true, 0).isEmpty());
+        // descriptions are only matched exactly or by prefix
+        assertTrue(index.search("gallno", false, true, 0).isEmpty());
+    }
+
+    @Test
+    void completeWordsMatchThroughStemsAndSynonyms() {
+        create(5, "Greek Yogurt", "Thick and creamy");
+        create(6, "Butter Popcorn", "Microwave");
+        create(7, "Lemon Soda", "Sparkling");
+
+        assertEquals(List.of(5), ids(index.search("curd ", false, false, 0)));
+        assertEquals(List.of(1, 4), sorted(ids(index.search("apple ", false, false, 0))));
+        // a word still being typed stays a prefix while anything starts with it; a complete word
+        // also matches through its synonym, and the exact hit ranks first
+        assertEquals(List.of(6), ids(index.search("pop", false, false, 0)));
+        assertEquals(List.of(7, 6), ids(index.search("pop ", false, false, 0)));
+        // and falls back to its synonym when nothing does
+        assertEquals(List.of(5), ids(index.search("dahi", false, false, 0)));
+    }
+
+    @Test
+    void limitKeepsTheBestHits() {
+        List<Integer> all = ids(index.search("fresh", false, false, 0));
+        assertEquals(3, all.size());
+        assertEquals(all.subList(0, 2), ids(index.search("fresh", false, false, 2)));
+    }
+
+    // BM25: each test builds its own small index so only the property under test differs
+
+    @Test
+    void nameHitOutranksDescriptionHit() {
+        ProductSearchIndex ranked = indexOf(product(1, "Jar", "Honey"), product(2, "Honey", "Jar"));
+        assertEquals(List.of(2, 1), ids(ranked.search("honey", false, false, 0)));
+    }
+
+    @Test
+    void shorterFieldOutranksLongerOne() {
+        ProductSearchIndex ranked = indexOf(product(1, "Rice Basmati Long Grain", "Bag"), product(2, "Rice", "Bag"));
+        assertEquals(List.of(2, 1), ids(ranked.search("rice", false, false, 0)));
+    }
+
+    @Test
+    void exactWordOutranksPrefixMatch() {
+        ProductSearchIndex ranked = indexOf(product(1, "Teapot", "Pot"), product(2, "Tea", "Pot"));
+        assertEquals(List.of(2, 1), ids(ranked.search("tea", false, false, 0)));
+    }
+
+    @Test
+    void repeatsOfARareTermCountForMore() {
+        // rice is in every product, saffron in two: the extra saffron weighs more than the extra rice
+        ProductSearchIndex ranked = indexOf(product(1, "Rice Rice Saffron", "Bag"), product(2, "Rice Saffron Saffron", "Bag"),
+                product(3, "Rice Flour", "Bag"), product(4, "Rice Cakes", "Bag"), product(5, "Rice Noodles", "Bag"));
+        assertEquals(List.of(2, 1), ids(ranked.search("rice saffron", false, false, 0)));
+    }
+
+    private ProductSearchIndex indexOf(Product... products) {
+        ProductSearchIndex ranked = new ProductSearchIndex(null, analyzer);
+        for (Product product : products) {
+            ranked.onProductChanged(ProductChangedEvent.created(product));
+        }
+        return ranked;
+    }
+
+    private void create(int id, String name, String description) {
+        index.onProductChanged(ProductChangedEvent.created(product(id, name, description)));
+    }
+
+    private static Product product(int id, String name, String description) {
+        Product product = new Product();
+        product.setProductId(id);
+        product.setProductName(name);
+        product.setProductDescription(description);
+        product.setPrice(BigDecimal.ONE);
+        product.setQuantity(10);
+        return product;
+    }
+
+    private static List<Integer> ids(List<Product> products) {
+        return products.stream().map(Product::getProductId).toList();
+    }
+
+    private static List<Integer> sorted(List<Integer> ids) {
+        return ids.stream().sorted().toList();
+    }
+}
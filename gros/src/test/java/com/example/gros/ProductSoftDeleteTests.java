@@ -0,0 +1,96 @@
+package com.example.gros;
+
+import com.example.gros.model.Product;
+import com.example.gros.repository.CartLineRepository;
+import com.example.gros.service.ProductCompactionJob;
+import com.example.gros.service.ProductService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Deleting discontinues the row and hides it at once; cart lines pointing at it are only purged by
+// the compaction job, two per batch here so a run has to loop.
+@SpringBootTest(properties = {
+    "spring.jpa.show-sql=false",
+    "gros.compaction.batch-size=2"
+})
+class ProductSoftDeleteTests {
+    private static final List<Integer> CUSTOMERS = List.of(1, 2, 3);
+
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private ProductCompactionJob compactionJob;
+    @Autowired
+    private CartLineRepository cartLines;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        for (Integer customerId : CUSTOMERS) {
+            jdbcTemplate.update("DELETE FROM cart_item WHERE user_id = ?", customerId);
+        }
+        jdbcTemplate.update("DELETE FROM product WHERE product_name IN ('Parsnip', 'Pomelo')");
+    }
+
+    @Test
+    void deleteHidesTheProductButKeepsTheRow() {
+        Product parsnip = productService.addProduct(product("Parsnip"));
+        Product pomelo = productService.addProduct(product("Pomelo"));
+        assertEquals(1, productService.searchProducts("parsnip").size());
+
+        // unknown ids are ignored
+        assertEquals(2, productService.deleteProducts(List.of(parsnip.getProductId(), pomelo.getProductId(), 999_999))
+                .getProductsDeleted());
+
+        assertTrue(productService.getProductById(parsnip.getProductId()).isEmpty());
+        assertTrue(productService.searchProducts("parsnip").isEmpty());
+        assertTrue(jdbcTemplate.queryForObject("SELECT discontinued FROM product WHERE product_id = ?", Boolean.class,
+                parsnip.getProductId()));
+        assertEquals(0, productService.deleteProducts(List.of(pomelo.getProductId())).getProductsDeleted());
+        assertThrows(IllegalArgumentException.class, () -> productService.deleteProduct(pomelo.getProductId()));
+    }
+
+    @Test
+    void compactionPurgesOnlyLinesOfDiscontinuedProducts() {
+        Product parsnip = productService.addProduct(product("Parsnip"));
+        Product pomelo = productService.addProduct(product("Pomelo"));
+        for (Integer customerId : CUSTOMERS) {
+            cartLines.upsert(customerId, parsnip.getProductId(), 1);
+            cartLines.upsert(customerId, 1, 2);
+        }
+        cartLines.upsert(1, pomelo.getProductId(), 4);
+        productService.deleteProduct(parsnip.getProductId());
+        productService.deleteProduct(pomelo.getProductId());
+        // the lines stay until the job runs
+        assertEquals(2, cartLines.findLines(2).size());
+        long purgedBefore = (long) compactionJob.stats().get("cartItemsPurged");
+
+        compactionJob.compact();
+
+        for (Integer customerId : CUSTOMERS) {
+            assertEquals(Map.of(1, 2), cartLines.findLines(customerId));
+        }
+        assertEquals(purgedBefore + 4, compactionJob.stats().get("cartItemsPurged"));
+    }
+
+    private static Product product(String name) {
+        Product product = new Product();
+        product.setProductName(name);
+        product.setPrice(new BigDecimal("1.50"));
+        product.setQuantity(10);
+        product.setProductDescription("Produce");
+        return product;
+    }
+}
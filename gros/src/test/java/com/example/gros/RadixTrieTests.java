@@ -0,0 +1,110 @@
+package com.example.gros;
+
+import com.example.gros.search.RadixTrie;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Prefix lookups return the best-ranked ids, not the first ones in key order, and stay right
+// as keys are added and removed (edge splits and re-compression included).
+class RadixTrieTests {
+
+    @Test
+    void ranksBeforeTruncating() {
+        RadixTrie trie = new RadixTrie();
+        trie.insert("apple", 1, 30);
+        trie.insert("apricot", 2, 20);
+        trie.insert("apples green", 3, 10);
+        trie.insert("banana", 4, 0);
+
+        assertEquals(List.of(3, 2), List.copyOf(trie.findByPrefix("ap", 2)));
+        assertEquals(List.of(3, 1), List.copyOf(trie.findByPrefix("appl", 5)));
+        assertTrue(trie.findByPrefix("apz", 5).isEmpty());
+    }
+
+    @Test
+    void idUnderSeveralKeysCountsOnceAtItsBestRank() {
+        RadixTrie trie = new RadixTrie();
+        trie.insert("fresh apples", 1, 10);
+        trie.insert("apples", 1, 1L << 32);
+        trie.insert("apple pie", 2, 20);
+
+        // "apples" matches id 1 twice; the better key puts it first and it is returned once
+        assertEquals(List.of(1, 2), List.copyOf(trie.findByPrefix("", 5)));
+        assertEquals(List.of(2, 1), List.copyOf(trie.findByPrefix("apple", 5)));
+    }
+
+    @Test
+    void removalFallsBackToTheNextBest() {
+        RadixTrie trie = new RadixTrie();
+        trie.insert("milk", 1, 5);
+        trie.insert("milkshake", 2, 9);
+        trie.insert("mild salsa", 3, 7);
+
+        trie.remove("milk", 1);
+        assertEquals(List.of(3, 2), List.copyOf(trie.findByPrefix("mil", 5)));
+        trie.remove("mild salsa", 3);
+        // "mil" + "k" + "shake" re-compressed into one edge
+        assertEquals(List.of(2), List.copyOf(trie.findByPrefix("milks", 5)));
+        trie.insert("milkshake", 2, 1);
+        trie.insert("milk", 1, 4);
+        assertEquals(List.of(2, 1), List.copyOf(trie.findByPrefix("m", 5)));
+    }
+
+    @Test
+    void matchesBruteForceUnderRandomEdits() {
+        Random random = new Random(7);
+        RadixTrie trie = new RadixTrie();
+        Map<String, Map<Integer, Long>> stored = new HashMap<>();
+        for (int step = 0; step < 20_000; step++) {
+            String key = randomKey(random);
+            int id = random.nextInt(50);
+            if (random.nextInt(3) == 0) {
+                trie.remove(key, id);
+                Map<Integer, Long> ids = stored.get(key);
+                if (ids != null) {
+                    ids.remove(id);
+                }
+            } else {
+                long rank = random.nextInt(100);
+                trie.insert(key, id, rank);
+                stored.computeIfAbsent(key, k -> new HashMap<>()).put(id, rank);
+            }
+            if (step % 50 == 0) {
+                String prefix = randomKey(random).substring(0, random.nextInt(3));
+                int limit = 1 + random.nextInt(8);
+                assertEquals(expected(stored, prefix, limit), List.copyOf(trie.findByPrefix(prefix, limit)), prefix);
+            }
+        }
+    }
+
+    private static List<Integer> expected(Map<String, Map<Integer, Long>> stored, String prefix, int limit) {
+        Map<Integer, Long> best = new HashMap<>();
+        stored.forEach((key, ids) -> {
+            if (key.startsWith(prefix)) {
+                ids.forEach((id, rank) -> best.merge(id, rank, Math::min));
+            }
+        });
+        List<Integer> ids = new ArrayList<>(best.keySet());
+        ids.sort(Comparator.comparing((Integer id) -> best.get(id)).thenComparing(id -> id));
+        return ids.subList(0, Math.min(limit, ids.size()));
+    }
+
+    // small alphabet and short keys so prefixes share edges and splits happen often
+    private static String randomKey(Random random) {
+        StringBuilder key = new StringBuilder();
+        int length = 2 + random.nextInt(5);
+        for (int i = 0; i < length; i++) {
+            key.append((char) ('a' + random.nextInt(3)));
+        }
+        return key.toString();
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.gros;
+
+import com.example.gros.cache.SearchResultCache;
+import com.example.gros.event.ProductChangedEvent;
+import com.example.gros.model.Product;
+import com.example.gros.search.TextAnalyzer;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Search result caching without a Spring context: queries that normalize alike share an entry, and a
+// product change drops exactly the entries it can affect while stock changes are patched in place.
+class SearchResultCacheTests {
+    private static final long TTL_MILLIS = 60_000;
+
+    private final TextAnalyzer analyzer = new TextAnalyzer(List.of("lowercase", "stem", "synonyms"),
+            new ClassPathResource("synonyms.txt"));
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void queriesThatNormalizeAlikeShareAnEntry() {
+        SearchResultCache cache = new SearchResultCache(analyzer, 10, TTL_MILLIS);
+        cache.get("Whole Milk ", false, 20, loader(milk(50)));
+        cache.get("milk, whole.", false, 20, loader(milk(50)));
+        cache.get("MILK  WHOLE ", false, 20, loader(milk(50)));
+        assertEquals(1, loads.get());
+
+        // the word still being typed, the fuzzy flag and the limit all make a different entry
+        cache.get("whole milk", false, 20, loader(milk(50)));
+        cache.get("whole milk ", true, 20, loader(milk(50)));
+        cache.get("whole milk ", false, 5, loader(milk(50)));
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    void changeDropsOnlyTheEntriesListingTheProduct() {
+        SearchResultCache cache = new SearchResultCache(analyzer, 10, TTL_MILLIS);
+        cache.get("milk ", false, 20, loader(milk(50)));
+        cache.get("apples ", false, 20, loader(product(1, "Fresh Apples", "Crisp", 100)));
+
+        cache.onProductChanged(ProductChangedEvent.updated(product(3, "Whole Milk", "Now organic", 50)));
+
+        cache.get("milk ", false, 20, loader(milk(50)));
+        cache.get("apples ", false, 20, loader(List.of()));
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void newTextDropsTheQueriesItNowMatches() {
+        SearchResultCache cache = new SearchResultCache(analyzer, 10, TTL_MILLIS);
+        cache.get("green te", false, 20, loader(List.of()));
+        cache.get("curd ", false, 20, loader(List.of()));
+        cache.get("rice ", false, 20, loader(List.of()));
+        cache.get("rce ", true, 20, loader(List.of()));
+
+        cache.onProductChanged(ProductChangedEvent.created(product(7, "Green Tea", "Loose leaf", 10)));
+        cache.onProductChanged(ProductChangedEvent.created(product(8, "Greek Yogurt", "Thick", 10)));
+
+        // "green te" by prefix, "curd" through the yogurt synonym, the fuzzy entry on any text change
+        cache.get("green te", false, 20, loader(List.of()));
+        cache.get("curd ", false, 20, loader(List.of()));
+        cache.get("rce ", true, 20, loader(List.of()));
+        assertEquals(7, loads.get());
+        cache.get("rice ", false, 20, loader(List.of()));
+        assertEquals(7, loads.get());
+    }
+
+    @Test
+    void stockChangeIsPatchedIntoCachedResults() {
+        SearchResultCache cache = new SearchResultCache(analyzer, 10, TTL_MILLIS);
+        cache.get("milk ", false, 20, loader(milk(50)));
+
+        cache.onProductChanged(ProductChangedEvent.stockChanged(product(3, "Whole Milk", "Fresh whole milk", 49)));
+
+        List<Product> cached = cache.get("milk ", false, 20, loader(List.of()));
+        assertEquals(1, loads.get());
+        assertEquals(49, cached.get(0).getQuantity());
+    }
+
+    @Test
+    void loadThatRacedWithAChangeIsNotCached() {
+        SearchResultCache cache = new SearchResultCache(analyzer, 10, TTL_MILLIS);
+        cache.get("milk ", false, 20, () -> {
+            loads.incrementAndGet();
+            // the change commits while this load is still reading the old state
+            cache.onProductChanged(ProductChangedEvent.stockChanged(product(3, "Whole Milk", "Fresh whole milk", 49)));
+            return milk(50);
+        });
+
+        List<Product> reloaded = cache.get("milk ", false, 20, loader(milk(49)));
+        assertEquals(2, loads.get());
+        assertEquals(49, reloaded.get(0).getQuantity());
+    }
+
+    @Test
+    void boundedBySizeAndAge() throws InterruptedException {
+        SearchResultCache small = new SearchResultCache(analyzer, 2, TTL_MILLIS);
+        small.get("milk ", false, 20, loader(List.of()));
+        small.get("tea ", false, 20, loader(List.of()));
+        small.get("milk ", false, 20, loader(List.of()));
+        small.get("rice ", false, 20, loader(List.of()));
+        // tea was least recently used
+        small.get("tea ", false, 20, loader(List.of()));
+        assertEquals(4, loads.get());
+        assertEquals(2L, small.stats().get("evictions"));
+
+        SearchResultCache shortLived = new SearchResultCache(analyzer, 10, 5);
+        shortLived.get("milk ", false, 20, loader(List.of()));
+        Thread.sleep(20);
+        shortLived.get("milk ", false, 20, loader(List.of()));
+        assertEquals(6, loads.get());
+        assertEquals(1L, shortLived.stats().get("expirations"));
+    }
+
+    private Supplier<List<Product>> loader(List<Product> results) {
+        return () -> {
+            loads.incrementAndGet();
+            return results;
+        };
+    }
+
+    private Supplier<List<Product>> loader(Product result) {
+        return loader(List.of(result));
+    }
+
+    private static List<Product> milk(int quantity) {
+        return List.of(product(3, "Whole Milk", "Fresh whole milk", quantity));
+    }
+
+    private static Product product(int id, String name, String description, int quantity) {
+        Product product = new Product();
+        product.setProductId(id);
+        product.setProductName(name);
+        product.setProductDescription(description);
+        product.setPrice(BigDecimal.ONE);
+        product.setQuantity(quantity);
+        return product;
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.gros;
+
+import com.example.gros.model.Product;
+import com.example.gros.reservation.StockReservations;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Holds against in-memory products, no Spring context: refusals, putting holds back when the
+// cart write after holdAll fails, and release once the TTL has passed.
+class StockReservationsTests {
+    private static final long TTL_MILLIS = 200;
+    private static final long TICK_MILLIS = 10;
+
+    private final Product apples = product(1, "Apples", 10);
+    private final Product pears = product(2, "Pears", 5);
+    private final Map<Integer, Product> catalog = Map.of(1, apples, 2, pears);
+
+    @Test
+    void refusesHoldBeyondWhatOthersLeave() {
+        StockReservations reservations = new StockReservations(TTL_MILLIS, TICK_MILLIS, 500);
+        reservations.holdAll(1, Map.of(1, 7), catalog::get);
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> reservations.holdAll(2, Map.of(1, 4), catalog::get));
+        assertEquals("Insufficient stock for: Apples", e.getMessage());
+        assertEquals(0, reservations.held(2, 1));
+        assertEquals(3, reservations.available(1, 10, 2));
+        // a customer's own hold does not count against them
+        assertEquals(10, reservations.available(1, 10, 1));
+        assertEquals(1L, reservations.stats().get("holdsRefused"));
+    }
+
+    @Test
+    void refusedLineReleasesTheLinesHeldBeforeIt() {
+        StockReservations reservations = new StockReservations(TTL_MILLIS, TICK_MILLIS, 500);
+        reservations.holdAll(1, Map.of(2, 4), catalog::get);
+        Map<Integer, Integer> lines = new LinkedHashMap<>();
+        lines.put(1, 5);
+        lines.put(2, 2);
+
+        assertThrows(IllegalArgumentException.class, () -> reservations.holdAll(2, lines, catalog::get));
+        assertEquals(0, reservations.held(2, 1));
+        assertEquals(10, reservations.available(1, 10, 1));
+    }
+
+    @Test
+    void restorePutsBackHoldsAfterAFailedCartWrite() {
+        StockReservations reservations = new StockReservations(TTL_MILLIS, TICK_MILLIS, 500);
+        reservations.holdAll(1, Map.of(1, 2), catalog::get);
+
+        Map<Integer, Integer> lines = new LinkedHashMap<>();
+        lines.put(1, 6);
+        lines.put(2, 3);
+        Map<Integer, Integer> previous = reservations.holdAll(1, lines, catalog::get);
+        assertEquals(6, reservations.held(1, 1));
+        assertEquals(3, reservations.held(1, 2));
+
+        // the cart write that followed failed: the holds go back to what they were
+        reservations.restore(1, previous);
+        assertEquals(2, reservations.held(1, 1));
+        assertEquals(0, reservations.held(1, 2));
+        assertEquals(8, reservations.available(1, 10, 2));
+        assertEquals(5, reservations.available(2, 5, 2));
+    }
+
+    @Test
+    void releasesHoldsOnceTheirTtlPasses() throws InterruptedException {
+        StockReservations reservations = new StockReservations(TTL_MILLIS, TICK_MILLIS, 1);
+        reservations.holdAll(1, Map.of(1, 4, 2, 5), catalog::get);
+        reservations.expire();
+        assertEquals(4, reservations.held(1, 1));
+
+        Thread.sleep(TTL_MILLIS + 3 * TICK_MILLIS);
+        reservations.expire();
+        assertEquals(0, reservations.held(1, 1));
+        assertEquals(0, reservations.held(1, 2));
+        assertEquals(10, reservations.available(1, 10, 2));
+        assertEquals(2L, reservations.stats().get("holdsExpired"));
+        // release batch size 1: one batch per expired hold
+        assertEquals(2L, reservations.stats().get("releaseBatches"));
+        assertEquals(0, reservations.stats().get("pendingTimers"));
+    }
+
+    private static Product product(int id, String name, int quantity) {
+        Product product = new Product();
+        product.setProductId(id);
+        product.setProductName(name);
+        product.setPrice(BigDecimal.ONE);
+        product.setQuantity(quantity);
+        return product;
+    }
+}
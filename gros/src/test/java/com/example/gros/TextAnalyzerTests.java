@@ -0,0 +1,71 @@
+package com.example.gros;
+
+import com.example.gros.search.TextAnalyzer;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// The analyzer chain as configured in application.properties, plus the configuration edges:
+// a shorter chain, an unknown filter and a missing synonyms file.
+class TextAnalyzerTests {
+    private final TextAnalyzer analyzer = analyzer("lowercase", "stem", "synonyms");
+
+    @Test
+    void surfaceTokensAreOnlyCaseFolded() {
+        assertEquals(List.of("fresh", "apples", "1", "gallon"), analyzer.tokenize("Fresh-Apples! (1 gallon)"));
+        assertEquals(List.of(), analyzer.tokenize("  ,.- "));
+    }
+
+    @Test
+    void stemsCommonPlurals() {
+        assertEquals(List.of("apple", "berry", "key"), analyzer.analyze("Apples Berries Keys"));
+        // endings that are rarely a plural "s" are left alone
+        assertEquals(List.of("grass", "asparagus", "shoes", "canoes", "bus"), analyzer.analyze("Grass Asparagus Shoes Canoes Bus"));
+    }
+
+    @Test
+    void mapsSynonymsOntoTheGroupsFirstWord() {
+        assertEquals(List.of("yogurt", "yogurt", "yogurt"), analyzer.analyze("Curd dahi YOGHURT"));
+        // "cola, coke => soda", and synonym entries are stemmed like product text
+        assertEquals(List.of("soda", "soda", "chickpea"), analyzer.analyze("Coke colas garbanzos"));
+    }
+
+    @Test
+    void chainRunsOnlyTheConfiguredFilters() {
+        assertEquals(List.of("apples", "curd"), analyzer("lowercase").analyze("Apples Curd"));
+        assertEquals(List.of("apple", "curd"), analyzer("lowercase", "stem").analyze("Apples Curd"));
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> analyzer("lowercase", "soundex"));
+        assertEquals("Unknown analyzer filter: soundex (use lowercase, stem or synonyms)", e.getMessage());
+    }
+
+    @Test
+    void missingSynonymsFileMeansNoSynonyms() {
+        TextAnalyzer withoutFile = new TextAnalyzer(List.of("lowercase", "stem", "synonyms"),
+                new FileSystemResource("does-not-exist/synonyms.txt"));
+        assertEquals(List.of("curd", "apple"), withoutFile.analyze("Curd Apples"));
+    }
+
+    @Test
+    void queryKeepsTheWordStillBeingTyped() {
+        TextAnalyzer.Query typing = analyzer.parseQuery("Whole mil");
+        assertEquals(Set.of("whole"), typing.complete());
+        assertEquals("mil", typing.partial());
+        assertEquals("whole mil*", typing.key());
+
+        TextAnalyzer.Query done = analyzer.parseQuery("milk, Whole milk ");
+        assertNull(done.partial());
+        assertEquals("milk whole", done.key());
+        assertEquals("milk whole", analyzer.normalize("Whole milk, MILK"));
+    }
+
+    private static TextAnalyzer analyzer(String... filters) {
+        return new TextAnalyzer(List.of(filters), new ClassPathResource("synonyms.txt"));
+    }
+}
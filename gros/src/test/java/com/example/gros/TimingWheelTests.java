@@ -0,0 +1,56 @@
+package com.example.gros;
+
+import com.example.gros.reservation.TimingWheel;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Random deadlines across every wheel level and past the top one, some timers cancelled, the clock
+// moved in small steps and occasional long jumps: each live timer fires exactly once, in the advance
+// that first reaches its deadline tick, and cancelled ones never do.
+class TimingWheelTests {
+    private static final int TIMERS = 100_000;
+    private static final long TICK_MILLIS = 10;
+    private static final long MAX_DELAY_TICKS = 100_000_000L;
+
+    @Test
+    void firesEveryLiveTimerOnItsDeadlineTick() {
+        Random random = new Random(42);
+        long start = 1_000_000 * TICK_MILLIS;
+        TimingWheel<Long> wheel = new TimingWheel<>(TICK_MILLIS, start);
+        List<TimingWheel.Timer<Long>> timers = new ArrayList<>(TIMERS);
+        for (int i = 0; i < TIMERS; i++) {
+            long deadlineTick = start / TICK_MILLIS + 1 + (long) (random.nextDouble() * MAX_DELAY_TICKS);
+            // the value is the deadline tick the timer should fire on
+            TimingWheel.Timer<Long> timer = wheel.schedule(deadlineTick, deadlineTick * TICK_MILLIS);
+            if (random.nextInt(10) == 0) {
+                timer.cancel();
+            }
+            timers.add(timer);
+        }
+
+        long live = timers.stream().filter(t -> !t.isCancelled()).count();
+        long fired = 0;
+        long previousTick = start / TICK_MILLIS;
+        long lastDeadline = start / TICK_MILLIS + MAX_DELAY_TICKS + 1;
+        while (previousTick <= lastDeadline) {
+            long step = random.nextInt(100) == 0 ? 1 + random.nextInt(200_000) : random.nextInt(3);
+            long nowTick = previousTick + step;
+            for (TimingWheel.Timer<Long> timer : wheel.advance(nowTick * TICK_MILLIS)) {
+                assertFalse(timer.isCancelled(), "cancelled timer fired");
+                assertTrue(timer.value() <= nowTick, "timer fired before its deadline");
+                assertTrue(timer.value() > previousTick, "timer fired after its deadline");
+                fired++;
+            }
+            previousTick = nowTick;
+        }
+        assertEquals(live, fired);
+        assertEquals(0, wheel.size());
+    }
+}
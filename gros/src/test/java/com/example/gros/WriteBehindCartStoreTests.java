@@ -0,0 +1,143 @@
+package com.example.gros;
+
+import com.example.gros.repository.CartLineRepository;
+import com.example.gros.service.WriteBehindCartStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Write-behind cart store against the real schema. The scheduled flush is pushed out of the way
+// so each test decides when carts are written.
+@SpringBootTest(properties = {
+    "spring.jpa.show-sql=false",
+    "gros.cart.store=write-behind",
+    "gros.cart.flush-interval-ms=3600000"
+})
+class WriteBehindCartStoreTests {
+    private static final int CUSTOMER_ID = 4;
+
+    @Autowired
+    private WriteBehindCartStore store;
+    @Autowired
+    private CartLineRepository cartLines;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void clearCart() {
+        jdbcTemplate.update("DELETE FROM cart_item WHERE user_id = ?", CUSTOMER_ID);
+        store.evict(CUSTOMER_ID);
+    }
+
+    @Test
+    void editsReachTheTableOnlyWhenFlushed() {
+        store.put(CUSTOMER_ID, 1, 2);
+        store.put(CUSTOMER_ID, 2, 1);
+        store.remove(CUSTOMER_ID, 2);
+        assertTrue(cartLines.findLines(CUSTOMER_ID).isEmpty());
+
+        store.flush(CUSTOMER_ID);
+        assertEquals(Map.of(1, 2), cartLines.findLines(CUSTOMER_ID));
+        assertEquals(0, store.stats().get("dirtyCarts"));
+    }
+
+    @Test
+    void oneBadCartDoesNotHoldBackTheOthers() {
+        int doomed = insertUser("doomed@example.com");
+        store.put(doomed, 1, 1);
+        store.put(CUSTOMER_ID, 3, 2);
+        // the customer goes away underneath the in-memory cart, so its rows fail the foreign key
+        jdbcTemplate.update("DELETE FROM registration WHERE customer_id = ?", doomed);
+        long failuresBefore = (long) store.stats().get("cartFlushFailures");
+
+        store.flushDirty();
+
+        assertEquals(Map.of(3, 2), cartLines.findLines(CUSTOMER_ID));
+        assertEquals(failuresBefore + 1, store.stats().get("cartFlushFailures"));
+        assertEquals(1, store.stats().get("failingCarts"));
+        assertEquals(1, store.stats().get("dirtyCarts"));
+        store.evict(doomed);
+    }
+
+    @Test
+    void linesForDeletedProductsAreSkipped() {
+        int gone = insertProduct("Gone");
+        store.put(CUSTOMER_ID, gone, 1);
+        store.put(CUSTOMER_ID, 1, 3);
+        jdbcTemplate.update("DELETE FROM product WHERE product_id = ?", gone);
+
+        store.flushDirty();
+
+        assertEquals(Map.of(1, 3), cartLines.findLines(CUSTOMER_ID));
+        assertEquals(0, store.stats().get("dirtyCarts"));
+    }
+
+    @Test
+    void committedClearDropsTheCartAndItsPendingEdits() {
+        store.put(CUSTOMER_ID, 1, 2);
+        store.flush(CUSTOMER_ID);
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            jdbcTemplate.update("DELETE FROM cart_item WHERE user_id = ?", CUSTOMER_ID);
+            store.clearing(CUSTOMER_ID);
+        });
+        // an edit racing with the checkout is not flushed while the clear is open
+        store.put(CUSTOMER_ID, 2, 1);
+        store.flushDirty();
+        assertTrue(cartLines.findLines(CUSTOMER_ID).isEmpty());
+
+        store.cleared(CUSTOMER_ID, true);
+        assertTrue(store.lines(CUSTOMER_ID).isEmpty());
+        store.flushDirty();
+        assertTrue(cartLines.findLines(CUSTOMER_ID).isEmpty());
+    }
+
+    @Test
+    void rolledBackClearKeepsTheCart() {
+        store.put(CUSTOMER_ID, 1, 2);
+        store.clearing(CUSTOMER_ID);
+        store.flushDirty();
+        assertTrue(cartLines.findLines(CUSTOMER_ID).isEmpty());
+
+        store.cleared(CUSTOMER_ID, false);
+        assertEquals(Map.of(1, 2), store.lines(CUSTOMER_ID));
+        store.flushDirty();
+        assertEquals(Map.of(1, 2), cartLines.findLines(CUSTOMER_ID));
+    }
+
+    private int insertUser(String email) {
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement("INSERT INTO registration (customer_name, email, password, address, " +
+                    "contact_number, user_role) VALUES ('Temp', ?, 'x', 'Nowhere', 1, 'CUSTOMER')", new String[] {"customer_id"});
+            ps.setString(1, email);
+            return ps;
+        }, keys);
+        return keys.getKey().intValue();
+    }
+
+    private int insertProduct(String name) {
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement("INSERT INTO product (product_name, price, quantity, product_description) " +
+                    "VALUES (?, 1.00, 10, 'Temp')", new String[] {"product_id"});
+            ps.setString(1, name);
+            return ps;
+        }, keys);
+        return keys.getKey().intValue();
+    }
+}